@@ -35,8 +35,8 @@ android {
 }
 
 dependencies {
-    implementation("com.squareup.picasso:picasso:2.8")
     implementation("androidx.swiperefreshlayout:swiperefreshlayout:1.1.0")
+    implementation("androidx.work:work-runtime:2.9.1")
      // Import the BoM for the Firebase platform
      implementation(platform("com.google.firebase:firebase-bom:34.6.0"))
      // Add the dependency for the Firebase Authentication library
@@ -44,7 +44,6 @@ dependencies {
     // Add the dependency for the Realtime Database library
     //implementation("com.google.firebase:firebase-database")
     implementation ("com.google.firebase:firebase-firestore")
-    implementation("com.github.bumptech.glide:glide:4.16.0")
     implementation(libs.appcompat)
     implementation(libs.material)
     implementation(libs.activity)
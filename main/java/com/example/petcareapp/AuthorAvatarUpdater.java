@@ -0,0 +1,122 @@
+package com.example.petcareapp;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.google.firebase.firestore.AggregateSource;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps the author avatar that is copied into each post (userProfileImage) in step with
+ * the author's profile. Profiles are not edited in the app, so the check runs once per
+ * process. If the signed-in user's profileImageUrl differs from the value last written
+ * to their posts, a count query first tells whether any post still has an old value.
+ * Only then are those posts read, a page at a time, and updated. Posts written before
+ * avatars were copied have no userProfileImage, which keeps them out of both queries:
+ * they can carry a full inline image, and the feed resolves their author anyway.
+ */
+public class AuthorAvatarUpdater {
+
+    private static final String TAG = "AuthorAvatarUpdater";
+    private static final String PREFS = "author_avatar";
+    private static final String KEY_SYNCED_PREFIX = "synced_";
+    // Posts read and updated per round trip; well under Firestore's 500 writes per batch
+    private static final int PAGE_SIZE = 25;
+
+    // Users checked by this process; main thread only
+    private static final Set<String> checkedUsers = new HashSet<>();
+
+    private final FirebaseFirestore db = FirebaseFirestore.getInstance();
+    private final SharedPreferences prefs;
+
+    public AuthorAvatarUpdater(Context context) {
+        this.prefs = context.getApplicationContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Value to store as userProfileImage on a new post by this user
+     */
+    public static String avatarOf(User user) {
+        return user != null && user.getProfileImageUrl() != null ? user.getProfileImageUrl() : "default";
+    }
+
+    /**
+     * Check the user's current avatar and fan it out to their posts if it changed. Only
+     * the first call per user and process does anything.
+     */
+    public void syncIfChanged(String userId) {
+        if (!checkedUsers.add(userId)) return;
+
+        UserProfileResolver resolver = UserProfileResolver.getInstance();
+        // Compare against the server, not a cached profile
+        resolver.invalidate(userId);
+        resolver.resolve(userId, user -> {
+            if (user == null) return;
+            String avatar = avatarOf(user);
+            if (avatar.equals(prefs.getString(KEY_SYNCED_PREFIX + userId, null))) return;
+            fanOutIfStale(userId, avatar);
+        });
+    }
+
+    // Android's SDK cannot read only document ids, so count first and read posts only if
+    // needed. A not-equal filter also skips documents without the field.
+    private void fanOutIfStale(String userId, String avatar) {
+        Query stale = db.collection("posts")
+                .whereEqualTo("userId", userId)
+                .whereNotEqualTo("userProfileImage", avatar);
+        stale.count().get(AggregateSource.SERVER)
+                .addOnSuccessListener(result -> {
+                    if (result.getCount() == 0) {
+                        markSynced(userId, avatar);
+                    } else {
+                        updatePage(stale.limit(PAGE_SIZE), userId, avatar, 0);
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    checkedUsers.remove(userId);
+                    Log.e(TAG, "Error counting posts of " + userId + ": " + e.getMessage());
+                });
+    }
+
+    // Updated posts drop out of the query, so each page is simply its first PAGE_SIZE results
+    private void updatePage(Query query, String userId, String avatar, int updated) {
+        query.get()
+                .addOnSuccessListener(snapshot -> {
+                    WriteBatch batch = db.batch();
+                    List<DocumentSnapshot> documents = snapshot.getDocuments();
+                    for (DocumentSnapshot document : documents) {
+                        batch.update(document.getReference(), "userProfileImage", avatar);
+                    }
+                    int total = updated + documents.size();
+                    batch.commit()
+                            .addOnSuccessListener(unused -> {
+                                if (documents.size() == PAGE_SIZE) {
+                                    updatePage(query, userId, avatar, total);
+                                } else {
+                                    markSynced(userId, avatar);
+                                    Log.d(TAG, "Avatar written to " + total + " posts");
+                                }
+                            })
+                            .addOnFailureListener(e -> fail(userId, "Error updating avatars: " + e.getMessage()));
+                })
+                .addOnFailureListener(e -> fail(userId, "Error loading posts of " + userId + ": " + e.getMessage()));
+    }
+
+    private void markSynced(String userId, String avatar) {
+        prefs.edit().putString(KEY_SYNCED_PREFIX + userId, avatar).apply();
+    }
+
+    // Retried the next time the feed opens; posts already updated are skipped
+    private static void fail(String userId, String message) {
+        checkedUsers.remove(userId);
+        Log.e(TAG, message);
+    }
+}
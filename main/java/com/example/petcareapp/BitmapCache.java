@@ -0,0 +1,290 @@
+package com.example.petcareapp;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two-level cache for decoded post images. Level one is an in-memory LRU sized in bytes;
+ * level two is a directory of downsampled JPEGs that survives process death. Entries are
+ * keyed by image content hash and target width. Hit/miss counters are kept for tuning the sizes.
+ *
+ * Bitmaps handed out are reference counted (acquire/release). Once a bitmap is both
+ * out of the memory cache and released by every view, it goes to the BitmapPool.
+ */
+public class BitmapCache {
+
+    private static final String TAG = "BitmapCache";
+    private static final String DISK_CACHE_DIR = "post_images";
+    private static final long DISK_CACHE_MAX_BYTES = 50L * 1024 * 1024; // 50MB
+    private static final int DISK_CACHE_QUALITY = 85;
+
+    private final LruCache<String, Bitmap> memoryCache;
+    private final int memoryCacheMaxBytes;
+    private final BitmapPool pool;
+    private final long poolMaxBytes;
+    private final int densityDpi;
+
+    // Guarded by refCounts
+    private final Map<Bitmap, Integer> refCounts = new IdentityHashMap<>();
+    private final Set<Bitmap> evictedInUse = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final File diskCacheDir;
+    private long diskCacheBytes = -1; // Computed on first write, guarded by this
+
+    // Disk writes are queued so they never hold up a decode thread
+    private final ExecutorService diskWriter = Executors.newSingleThreadExecutor();
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong memoryMisses = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong diskMisses = new AtomicLong();
+
+    public BitmapCache(Context context) {
+        // Use an eighth of the app's heap for decoded bitmaps
+        memoryCacheMaxBytes = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 8);
+        memoryCache = new LruCache<String, Bitmap>(memoryCacheMaxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getAllocationByteCount();
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Bitmap oldValue, Bitmap newValue) {
+                if (oldValue != newValue) {
+                    recycleWhenUnused(oldValue);
+                }
+            }
+        };
+        // A sixteenth of the heap for bitmaps waiting to be reused
+        poolMaxBytes = Runtime.getRuntime().maxMemory() / 16;
+        pool = new BitmapPool(poolMaxBytes);
+        densityDpi = context.getResources().getDisplayMetrics().densityDpi;
+        diskCacheDir = new File(context.getCacheDir(), DISK_CACHE_DIR);
+    }
+
+    public static String key(String imageKey, int targetWidth) {
+        return imageKey + "_" + targetWidth;
+    }
+
+    /**
+     * Look up a bitmap and, on a hit, acquire it for the caller in the same step so an
+     * eviction racing with the lookup cannot hand it to the pool
+     */
+    public Bitmap acquireFromMemory(String key) {
+        Bitmap bitmap;
+        synchronized (refCounts) {
+            bitmap = memoryCache.get(key);
+            if (bitmap != null) {
+                acquire(bitmap);
+            }
+        }
+        if (bitmap != null) {
+            memoryHits.incrementAndGet();
+        } else {
+            memoryMisses.incrementAndGet();
+        }
+        return bitmap;
+    }
+
+    public void putInMemory(String key, Bitmap bitmap) {
+        memoryCache.put(key, bitmap);
+    }
+
+    public BitmapPool getPool() {
+        return pool;
+    }
+
+    public int getDensityDpi() {
+        return densityDpi;
+    }
+
+    /**
+     * Mark a bitmap as in use (displayed or being written); it will not be reused until released
+     */
+    public void acquire(Bitmap bitmap) {
+        synchronized (refCounts) {
+            Integer count = refCounts.get(bitmap);
+            refCounts.put(bitmap, count == null ? 1 : count + 1);
+        }
+    }
+
+    public void release(Bitmap bitmap) {
+        if (bitmap == null) return;
+        synchronized (refCounts) {
+            Integer count = refCounts.get(bitmap);
+            if (count == null) return;
+            if (count > 1) {
+                refCounts.put(bitmap, count - 1);
+                return;
+            }
+            refCounts.remove(bitmap);
+            if (!evictedInUse.remove(bitmap)) return;
+        }
+        pool.put(bitmap);
+    }
+
+    private void recycleWhenUnused(Bitmap bitmap) {
+        synchronized (refCounts) {
+            if (refCounts.containsKey(bitmap)) {
+                evictedInUse.add(bitmap);
+                return;
+            }
+        }
+        pool.put(bitmap);
+    }
+
+    /**
+     * Read a cached image from disk; call from a background thread
+     */
+    public Bitmap getFromDisk(String key) {
+        File file = diskFile(key);
+        if (!file.exists()) {
+            diskMisses.incrementAndGet();
+            return null;
+        }
+
+        // Stored images are already at the target width, but can still reuse pooled memory
+        Bitmap bitmap = null;
+        try {
+            bitmap = BitmapDecoder.decode(readFile(file), 0, pool, densityDpi);
+        } catch (IOException e) {
+            Log.e(TAG, "Error reading disk cache: " + e.getMessage());
+        }
+        if (bitmap == null) {
+            diskMisses.incrementAndGet();
+            return null;
+        }
+        diskHits.incrementAndGet();
+        // Touch the file so eviction treats it as recently used
+        file.setLastModified(System.currentTimeMillis());
+        return bitmap;
+    }
+
+    public void putOnDisk(String key, Bitmap bitmap) {
+        // Hold the bitmap so it is not reused while it is being compressed
+        acquire(bitmap);
+        diskWriter.execute(() -> {
+            try {
+                writeToDisk(key, bitmap);
+            } finally {
+                release(bitmap);
+            }
+        });
+    }
+
+    private void writeToDisk(String key, Bitmap bitmap) {
+        if (!diskCacheDir.exists() && !diskCacheDir.mkdirs()) return;
+
+        File file = diskFile(key);
+        File tempFile = new File(diskCacheDir, file.getName() + ".tmp");
+        try (OutputStream out = new FileOutputStream(tempFile)) {
+            bitmap.compress(Bitmap.CompressFormat.JPEG, DISK_CACHE_QUALITY, out);
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing disk cache: " + e.getMessage());
+            tempFile.delete();
+            return;
+        }
+
+        long previousLength = file.exists() ? file.length() : 0;
+        if (tempFile.renameTo(file)) {
+            synchronized (this) {
+                if (diskCacheBytes < 0) {
+                    diskCacheBytes = directorySize();
+                } else {
+                    diskCacheBytes += file.length() - previousLength;
+                }
+            }
+            trimDiskCache();
+        }
+    }
+
+    /**
+     * Shrink (or restore) the memory cache and pool to a fraction of their normal size.
+     * Evicted bitmaps that are still on screen stay alive until their views release them.
+     */
+    public void resizeMemory(float fraction) {
+        memoryCache.resize(Math.max(1, (int) (memoryCacheMaxBytes * fraction)));
+        pool.resize((long) (poolMaxBytes * fraction));
+    }
+
+    public void clearMemory() {
+        memoryCache.evictAll();
+        pool.clear();
+    }
+
+    public long getMemoryHits() { return memoryHits.get(); }
+    public long getMemoryMisses() { return memoryMisses.get(); }
+    public long getDiskHits() { return diskHits.get(); }
+    public long getDiskMisses() { return diskMisses.get(); }
+
+    public String getStats() {
+        return "memory " + memoryHits.get() + " hits / " + memoryMisses.get() + " misses ("
+                + memoryCache.size() / 1024 + "KB of " + memoryCache.maxSize() / 1024 + "KB), "
+                + "disk " + diskHits.get() + " hits / " + diskMisses.get() + " misses";
+    }
+
+    private File diskFile(String key) {
+        return new File(diskCacheDir, key.replaceAll("[^A-Za-z0-9_-]", "_") + ".jpg");
+    }
+
+    // Runs on the disk writer thread
+    private void trimDiskCache() {
+        synchronized (this) {
+            if (diskCacheBytes <= DISK_CACHE_MAX_BYTES) return;
+        }
+
+        File[] files = diskCacheDir.listFiles();
+        if (files == null) return;
+        // Oldest first
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : files) {
+            synchronized (this) {
+                if (diskCacheBytes <= DISK_CACHE_MAX_BYTES) return;
+                long length = file.length();
+                if (file.delete()) {
+                    diskCacheBytes -= length;
+                }
+            }
+        }
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream((int) file.length());
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private long directorySize() {
+        long total = 0;
+        File[] files = diskCacheDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                total += file.length();
+            }
+        }
+        return total;
+    }
+}
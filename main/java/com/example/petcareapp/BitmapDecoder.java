@@ -0,0 +1,81 @@
+package com.example.petcareapp;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+/**
+ * Decodes encoded images straight to a target width: inSampleSize does the coarse
+ * power-of-two reduction and inDensity/inTargetDensity the exact scaling, all in one
+ * decode, into a bitmap borrowed from the pool when one fits.
+ */
+public final class BitmapDecoder {
+
+    private static final String TAG = "BitmapDecoder";
+
+    private BitmapDecoder() {}
+
+    /**
+     * @param targetWidth maximum width of the result; 0 keeps the source width
+     * @param densityDpi  density stamped on the result so views draw it 1:1
+     */
+    public static Bitmap decode(byte[] bytes, int targetWidth, BitmapPool pool, int densityDpi) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        int inSampleSize = calculateInSampleSize(options.outWidth, targetWidth);
+        int sampledWidth = (options.outWidth + inSampleSize - 1) / inSampleSize;
+        int sampledHeight = (options.outHeight + inSampleSize - 1) / inSampleSize;
+
+        int width = sampledWidth;
+        int height = sampledHeight;
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = inSampleSize;
+        if (targetWidth > 0 && sampledWidth > targetWidth) {
+            options.inScaled = true;
+            options.inDensity = sampledWidth;
+            options.inTargetDensity = targetWidth;
+            width = targetWidth;
+            height = Math.max(1, Math.round(sampledHeight * (float) targetWidth / sampledWidth));
+        }
+
+        // JPEGs have no alpha channel, so half the memory per pixel is enough
+        options.inPreferredConfig = "image/jpeg".equals(options.outMimeType)
+                ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+        options.inMutable = true;
+        options.inBitmap = pool.get(width, height, options.inPreferredConfig);
+
+        Bitmap bitmap;
+        try {
+            bitmap = BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+        } catch (IllegalArgumentException e) {
+            // The pooled bitmap could not be reused after all; decode into a fresh one
+            Log.w(TAG, "inBitmap rejected: " + e.getMessage());
+            pool.put(options.inBitmap);
+            options.inBitmap = null;
+            bitmap = BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+        }
+
+        if (bitmap != null) {
+            bitmap.setDensity(densityDpi);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Largest power of two that keeps the decoded width at or above reqWidth
+     */
+    static int calculateInSampleSize(int width, int reqWidth) {
+        int inSampleSize = 1;
+        if (reqWidth <= 0) return inSampleSize;
+
+        while (width / (inSampleSize * 2) >= reqWidth) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.petcareapp;
+
+import android.graphics.Bitmap;
+import android.util.SparseArray;
+
+import java.util.ArrayDeque;
+
+/**
+ * Bitmaps that are no longer displayed or cached, grouped by allocation size class
+ * (powers of two). BitmapDecoder hands them back to BitmapFactory through inBitmap,
+ * so scrolling the feed allocates very few new bitmaps.
+ */
+public class BitmapPool {
+
+    private long maxBytes;
+    private long currentBytes = 0;
+    private final SparseArray<ArrayDeque<Bitmap>> sizeClasses = new SparseArray<>();
+    // Oldest entries are dropped first when the pool is over budget
+    private final ArrayDeque<Bitmap> insertionOrder = new ArrayDeque<>();
+
+    public BitmapPool(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * A pooled bitmap large enough to decode width x height into, or null
+     */
+    public synchronized Bitmap get(int width, int height, Bitmap.Config config) {
+        long needed = (long) width * height * bytesPerPixel(config);
+        int sizeClass = sizeClass(needed);
+
+        // The next class up still fits, but wastes at most half of its memory
+        for (int c = sizeClass; c <= sizeClass + 1; c++) {
+            ArrayDeque<Bitmap> bitmaps = sizeClasses.get(c);
+            if (bitmaps == null) continue;
+            for (Bitmap bitmap : bitmaps) {
+                if (bitmap.getAllocationByteCount() >= needed) {
+                    bitmaps.remove(bitmap);
+                    insertionOrder.remove(bitmap);
+                    currentBytes -= bitmap.getAllocationByteCount();
+                    return bitmap;
+                }
+            }
+        }
+        return null;
+    }
+
+    public synchronized void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()) return;
+
+        int size = bitmap.getAllocationByteCount();
+        if (size > maxBytes) {
+            bitmap.recycle();
+            return;
+        }
+
+        int sizeClass = sizeClass(size);
+        ArrayDeque<Bitmap> bitmaps = sizeClasses.get(sizeClass);
+        if (bitmaps == null) {
+            bitmaps = new ArrayDeque<>();
+            sizeClasses.put(sizeClass, bitmaps);
+        }
+        bitmaps.add(bitmap);
+        insertionOrder.add(bitmap);
+        currentBytes += size;
+        trimToSize(maxBytes);
+    }
+
+    /**
+     * Change the pool's budget, dropping the oldest bitmaps if it shrank
+     */
+    public synchronized void resize(long newMaxBytes) {
+        maxBytes = newMaxBytes;
+        trimToSize(maxBytes);
+    }
+
+    public synchronized void trimToSize(long targetBytes) {
+        while (currentBytes > targetBytes && !insertionOrder.isEmpty()) {
+            Bitmap oldest = insertionOrder.poll();
+            ArrayDeque<Bitmap> bitmaps = sizeClasses.get(sizeClass(oldest.getAllocationByteCount()));
+            if (bitmaps != null) {
+                bitmaps.remove(oldest);
+            }
+            currentBytes -= oldest.getAllocationByteCount();
+            oldest.recycle();
+        }
+    }
+
+    public void clear() {
+        trimToSize(0);
+    }
+
+    private static int sizeClass(long bytes) {
+        return 64 - Long.numberOfLeadingZeros(Math.max(1, bytes - 1));
+    }
+
+    private static int bytesPerPixel(Bitmap.Config config) {
+        if (config == Bitmap.Config.RGB_565 || config == Bitmap.Config.ARGB_4444) return 2;
+        if (config == Bitmap.Config.ALPHA_8) return 1;
+        return 4;
+    }
+}
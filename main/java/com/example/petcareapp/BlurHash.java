@@ -0,0 +1,188 @@
+package com.example.petcareapp;
+
+import android.graphics.Bitmap;
+
+/**
+ * BlurHash encoding of an image: a few DCT components of its colours packed into a
+ * short base-83 string (about 30 characters). Stored on the post at upload and
+ * decoded into a tiny blurred bitmap while the real image loads.
+ */
+public final class BlurHash {
+
+    private static final String CHARACTERS =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz#$%*+,-.:;=?@[]^_{|}~";
+
+    private BlurHash() {
+    }
+
+    /**
+     * Encode a (small) bitmap with componentsX x componentsY components, each 1..9
+     */
+    public static String encode(Bitmap bitmap, int componentsX, int componentsY) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        int[] pixels = new int[width * height];
+        bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+
+        float[][] factors = new float[componentsX * componentsY][];
+        for (int j = 0; j < componentsY; j++) {
+            for (int i = 0; i < componentsX; i++) {
+                factors[j * componentsX + i] = basisFactor(pixels, width, height, i, j);
+            }
+        }
+
+        StringBuilder hash = new StringBuilder(4 + 2 * factors.length);
+        encode83(hash, (componentsX - 1) + (componentsY - 1) * 9, 1);
+
+        float maximumValue = 1f;
+        if (factors.length > 1) {
+            float actualMaximum = 0f;
+            for (int k = 1; k < factors.length; k++) {
+                for (float component : factors[k]) {
+                    actualMaximum = Math.max(actualMaximum, Math.abs(component));
+                }
+            }
+            int quantisedMaximum = (int) Math.max(0, Math.min(82, Math.floor(actualMaximum * 166 - 0.5)));
+            maximumValue = (quantisedMaximum + 1) / 166f;
+            encode83(hash, quantisedMaximum, 1);
+        } else {
+            encode83(hash, 0, 1);
+        }
+
+        float[] dc = factors[0];
+        encode83(hash, (linearToSrgb(dc[0]) << 16) + (linearToSrgb(dc[1]) << 8) + linearToSrgb(dc[2]), 4);
+        for (int k = 1; k < factors.length; k++) {
+            float[] ac = factors[k];
+            int value = quantiseAc(ac[0], maximumValue) * 19 * 19
+                    + quantiseAc(ac[1], maximumValue) * 19
+                    + quantiseAc(ac[2], maximumValue);
+            encode83(hash, value, 2);
+        }
+        return hash.toString();
+    }
+
+    /**
+     * Decode into a width x height bitmap, or null if the hash is malformed. Meant for
+     * tiny sizes (a few dozen pixels) that the view scales up.
+     */
+    public static Bitmap decode(String hash, int width, int height) {
+        if (hash == null || hash.length() < 6) return null;
+
+        int sizeFlag = decode83(hash, 0, 1);
+        int componentsY = sizeFlag / 9 + 1;
+        int componentsX = sizeFlag % 9 + 1;
+        if (sizeFlag < 0 || hash.length() != 4 + 2 * componentsX * componentsY) return null;
+
+        int quantisedMaximum = decode83(hash, 1, 2);
+        float maximumValue = (quantisedMaximum + 1) / 166f;
+
+        float[][] colors = new float[componentsX * componentsY][];
+        int dc = decode83(hash, 2, 6);
+        if (dc < 0) return null;
+        colors[0] = new float[]{srgbToLinear(dc >> 16), srgbToLinear((dc >> 8) & 255), srgbToLinear(dc & 255)};
+        for (int k = 1; k < colors.length; k++) {
+            int ac = decode83(hash, 4 + k * 2, 6 + k * 2);
+            if (ac < 0) return null;
+            colors[k] = new float[]{
+                    signPow(((ac / (19 * 19)) - 9) / 9f, 2f) * maximumValue,
+                    signPow((((ac / 19) % 19) - 9) / 9f, 2f) * maximumValue,
+                    signPow(((ac % 19) - 9) / 9f, 2f) * maximumValue};
+        }
+
+        // The cosines only depend on one coordinate each, so compute them once
+        float[] cosX = new float[width * componentsX];
+        for (int x = 0; x < width; x++) {
+            for (int i = 0; i < componentsX; i++) {
+                cosX[x * componentsX + i] = (float) Math.cos(Math.PI * x * i / width);
+            }
+        }
+        float[] cosY = new float[height * componentsY];
+        for (int y = 0; y < height; y++) {
+            for (int j = 0; j < componentsY; j++) {
+                cosY[y * componentsY + j] = (float) Math.cos(Math.PI * y * j / height);
+            }
+        }
+
+        int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                float r = 0, g = 0, b = 0;
+                for (int j = 0; j < componentsY; j++) {
+                    for (int i = 0; i < componentsX; i++) {
+                        float basis = cosX[x * componentsX + i] * cosY[y * componentsY + j];
+                        float[] color = colors[j * componentsX + i];
+                        r += color[0] * basis;
+                        g += color[1] * basis;
+                        b += color[2] * basis;
+                    }
+                }
+                pixels[y * width + x] = 0xFF000000 | (linearToSrgb(r) << 16)
+                        | (linearToSrgb(g) << 8) | linearToSrgb(b);
+            }
+        }
+        return Bitmap.createBitmap(pixels, width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    private static float[] basisFactor(int[] pixels, int width, int height, int i, int j) {
+        float r = 0, g = 0, b = 0;
+        for (int y = 0; y < height; y++) {
+            float cosY = (float) Math.cos(Math.PI * j * y / height);
+            for (int x = 0; x < width; x++) {
+                float basis = (float) Math.cos(Math.PI * i * x / width) * cosY;
+                int pixel = pixels[y * width + x];
+                r += basis * srgbToLinear((pixel >> 16) & 255);
+                g += basis * srgbToLinear((pixel >> 8) & 255);
+                b += basis * srgbToLinear(pixel & 255);
+            }
+        }
+        float scale = (i == 0 && j == 0 ? 1f : 2f) / (width * height);
+        return new float[]{r * scale, g * scale, b * scale};
+    }
+
+    private static int quantiseAc(float value, float maximumValue) {
+        return (int) Math.max(0, Math.min(18, Math.floor(signPow(value / maximumValue, 0.5f) * 9 + 9.5)));
+    }
+
+    private static float srgbToLinear(int value) {
+        float v = value / 255f;
+        return v <= 0.04045f ? v / 12.92f : (float) Math.pow((v + 0.055f) / 1.055f, 2.4f);
+    }
+
+    private static int linearToSrgb(float value) {
+        float v = Math.max(0f, Math.min(1f, value));
+        if (v <= 0.0031308f) {
+            return (int) (v * 12.92f * 255 + 0.5f);
+        }
+        return (int) ((1.055f * (float) Math.pow(v, 1 / 2.4f) - 0.055f) * 255 + 0.5f);
+    }
+
+    private static float signPow(float value, float exponent) {
+        return Math.copySign((float) Math.pow(Math.abs(value), exponent), value);
+    }
+
+    private static void encode83(StringBuilder out, int value, int length) {
+        for (int i = 1; i <= length; i++) {
+            int digit = (value / pow83(length - i)) % 83;
+            out.append(CHARACTERS.charAt(digit));
+        }
+    }
+
+    // -1 for characters outside the alphabet
+    private static int decode83(String hash, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = CHARACTERS.indexOf(hash.charAt(i));
+            if (digit < 0) return -1;
+            value = value * 83 + digit;
+        }
+        return value;
+    }
+
+    private static int pow83(int exponent) {
+        int result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= 83;
+        }
+        return result;
+    }
+}
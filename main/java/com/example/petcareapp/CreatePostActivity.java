@@ -1,15 +1,10 @@
 package com.example.petcareapp;
 
 import android.Manifest;
-import android.app.ProgressDialog;
 import android.content.Intent;
 import android.content.pm.PackageManager;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.net.Uri;
 import android.os.Bundle;
-import android.provider.MediaStore;
-import android.util.Base64;
 import android.view.View;
 import android.widget.Button;
 import android.widget.EditText;
@@ -26,13 +21,6 @@ import androidx.core.content.ContextCompat;
 import com.google.android.material.card.MaterialCardView;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.firestore.FirebaseFirestore;
-
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.util.HashMap;
-import java.util.Map;
 
 public class CreatePostActivity extends AppCompatActivity {
 
@@ -47,13 +35,13 @@ public class CreatePostActivity extends AppCompatActivity {
     private ImageView removeImageButton;
     private TextView usernameText;
     private ImageView backButton;
-    private ProgressDialog progressDialog;
 
-    private FirebaseFirestore db;
     private FirebaseAuth auth;
+    private PostComposer composer;
+    private ImageProcessingPipeline imagePipeline;
 
     private Uri selectedImageUri;
-    private String imageBase64;
+    private ImageVariants imageVariants;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -64,8 +52,10 @@ public class CreatePostActivity extends AppCompatActivity {
         overridePendingTransition(R.anim.slide_in_up, 0);
 
         // Initialize Firebase
-        db = FirebaseFirestore.getInstance();
         auth = FirebaseAuth.getInstance();
+        composer = new PostComposer(this, R.anim.slide_out_down);
+        imagePipeline = new ImageProcessingPipeline(this, this);
+        composer.requestNotificationPermission();
 
         // Initialize Views
         captionEditText = findViewById(R.id.caption_edittext);
@@ -83,11 +73,6 @@ public class CreatePostActivity extends AppCompatActivity {
             usernameText.setText(currentUser.getDisplayName());
         }
 
-        // Initialize Progress Dialog
-        progressDialog = new ProgressDialog(this);
-        progressDialog.setMessage("Posting...");
-        progressDialog.setCancelable(false);
-
         // Back button
         backButton.setOnClickListener(v -> {
             finish();
@@ -100,7 +85,8 @@ public class CreatePostActivity extends AppCompatActivity {
         // Remove image button
         removeImageButton.setOnClickListener(v -> {
             selectedImageUri = null;
-            imageBase64 = null;
+            imageVariants = null;
+            imagePipeline.cancel();
             imageCard.setVisibility(View.GONE);
         });
 
@@ -141,8 +127,8 @@ public class CreatePostActivity extends AppCompatActivity {
                                            @NonNull int[] grantResults) {
         super.onRequestPermissionsResult(requestCode, permissions, grantResults);
 
-        if (requestCode == PERMISSION_REQUEST_STORAGE && grantResults.length > 0
-                && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
+        if (requestCode != PERMISSION_REQUEST_STORAGE) return;
+        if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
             openImagePicker();
         } else {
             Toast.makeText(this, "Permission denied. Cannot select images.", Toast.LENGTH_SHORT).show();
@@ -155,95 +141,34 @@ public class CreatePostActivity extends AppCompatActivity {
 
         if (requestCode == PICK_IMAGE_REQUEST && resultCode == RESULT_OK && data != null) {
             selectedImageUri = data.getData();
-            try {
-                InputStream inputStream = getContentResolver().openInputStream(selectedImageUri);
-                Bitmap bitmap = BitmapFactory.decodeStream(inputStream);
-
-                // Show the image
-                postImageView.setImageBitmap(bitmap);
-                imageCard.setVisibility(View.VISIBLE);
-
-                inputStream.close();
-
-                // Convert to Base64 in background
-                new Thread(() -> {
-                    try {
-                        InputStream is = getContentResolver().openInputStream(selectedImageUri);
-                        Bitmap bmp = BitmapFactory.decodeStream(is);
-                        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                        bmp.compress(Bitmap.CompressFormat.JPEG, 70, baos);
-                        imageBase64 = Base64.encodeToString(baos.toByteArray(), Base64.DEFAULT);
-                        is.close();
-
-                        runOnUiThread(() -> Toast.makeText(CreatePostActivity.this,
-                                "Image ready to upload", Toast.LENGTH_SHORT).show());
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                    }
-                }).start();
-
-            } catch (IOException e) {
-                e.printStackTrace();
-                Toast.makeText(this, "Failed to load image", Toast.LENGTH_SHORT).show();
-            }
+            imageVariants = null;
+
+            // Resize, orient and encode in background; the preview comes from the same pass
+            imagePipeline.process(selectedImageUri, new ImageProcessingPipeline.Callback() {
+                @Override
+                public void onProcessed(ImageIngest.Result result) {
+                    imageVariants = result.variants;
+                    postImageView.setImageBitmap(result.preview);
+                    imageCard.setVisibility(View.VISIBLE);
+                    Toast.makeText(CreatePostActivity.this,
+                            "Image ready to upload", Toast.LENGTH_SHORT).show();
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    e.printStackTrace();
+                    Toast.makeText(CreatePostActivity.this, "Failed to load image", Toast.LENGTH_SHORT).show();
+                }
+            });
         }
     }
 
     private void uploadPost() {
         String caption = captionEditText.getText().toString().trim();
-
-        if (caption.isEmpty()) {
-            Toast.makeText(this, "Please enter a caption", Toast.LENGTH_SHORT).show();
-            return;
+        if (composer.share(caption, imageVariants)) {
+            // Ignore further taps while the avatar is resolved
+            uploadButton.setEnabled(false);
         }
-
-        FirebaseUser currentUser = auth.getCurrentUser();
-        if (currentUser == null) {
-            Toast.makeText(this, "Please login to create posts", Toast.LENGTH_SHORT).show();
-            return;
-        }
-
-        progressDialog.show();
-
-        // Create post data
-        Map<String, Object> postData = new HashMap<>();
-        postData.put("userId", currentUser.getUid());
-        postData.put("username", currentUser.getDisplayName() != null ?
-                currentUser.getDisplayName() : "Anonymous");
-        postData.put("caption", caption);
-        postData.put("timestamp", System.currentTimeMillis());
-        postData.put("likeCount", 0);
-        postData.put("commentCount", 0);
-
-        if (imageBase64 != null) {
-            postData.put("imageBase64", imageBase64);
-            postData.put("hasImage", true);
-        } else {
-            postData.put("hasImage", false);
-        }
-
-        postData.put("likedBy", new HashMap<String, Boolean>());
-
-        // Save to Firestore
-        db.collection("posts")
-                .add(postData)
-                .addOnSuccessListener(documentReference -> {
-                    progressDialog.dismiss();
-                    Toast.makeText(this, "Post created successfully!", Toast.LENGTH_SHORT).show();
-
-                    // Update with post ID
-                    documentReference.update("postId", documentReference.getId());
-
-                    Intent intent = new Intent(CreatePostActivity.this, HomeActivity.class);
-                    startActivity(intent);
-                    overridePendingTransition(0, R.anim.slide_out_down);
-                    finish();
-                })
-                .addOnFailureListener(e -> {
-                    progressDialog.dismiss();
-                    Toast.makeText(this, "Failed to create post: " + e.getMessage(),
-                            Toast.LENGTH_SHORT).show();
-                });
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,144 @@
+package com.example.petcareapp;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Decodes the images of the rows just past the visible ones, in the direction the feed
+ * is scrolling, so they are in the memory cache by the time they are bound. The look-ahead
+ * grows with fling velocity and is capped by the MemoryBudget. Prefetches for rows that
+ * were scrolled away from are cancelled. Main thread only.
+ */
+public class FeedImagePrefetcher {
+
+    // Fling velocity (px/s) that adds one more multiple of the base depth
+    private static final int VELOCITY_PER_STEP = 4000;
+    private static final int MAX_DEPTH_MULTIPLIER = 3;
+
+    private static final class Prefetch {
+        final int position;
+        PostImageLoader.Request request;
+
+        Prefetch(int position) {
+            this.position = position;
+        }
+    }
+
+    private final LinearLayoutManager layoutManager;
+    private final PostAdapter adapter;
+    private final PostImageLoader imageLoader;
+    private final MemoryBudget memoryBudget;
+    // By post id
+    private final Map<String, Prefetch> inFlight = new HashMap<>();
+
+    private int flingVelocity = 0;
+    private int lastStart = -1;
+    private int lastEnd = -1;
+
+    public FeedImagePrefetcher(RecyclerView recyclerView, LinearLayoutManager layoutManager,
+                               PostAdapter adapter) {
+        this.layoutManager = layoutManager;
+        this.adapter = adapter;
+        this.imageLoader = PostImageLoader.getInstance(recyclerView.getContext());
+        this.memoryBudget = MemoryBudget.getInstance(recyclerView.getContext());
+
+        recyclerView.setOnFlingListener(new RecyclerView.OnFlingListener() {
+            @Override
+            public boolean onFling(int velocityX, int velocityY) {
+                flingVelocity = Math.abs(velocityY);
+                return false; // Let the layout manager fling as usual
+            }
+        });
+    }
+
+    /**
+     * Call from the feed's onScrolled
+     */
+    public void onScrolled(int dy) {
+        if (dy == 0) return;
+
+        int firstVisible = layoutManager.findFirstVisibleItemPosition();
+        int lastVisible = layoutManager.findLastVisibleItemPosition();
+        if (firstVisible == RecyclerView.NO_POSITION) return;
+
+        int depth = prefetchDepth();
+        int count = adapter.getItemCount();
+        int start;
+        int end;
+        if (dy > 0) {
+            start = lastVisible + 1;
+            end = Math.min(count - 1, lastVisible + depth);
+        } else {
+            start = Math.max(0, firstVisible - depth);
+            end = firstVisible - 1;
+        }
+        // Most scroll events move less than a row
+        if (start == lastStart && end == lastEnd) return;
+        lastStart = start;
+        lastEnd = end;
+
+        cancelOutside(Math.min(start, firstVisible), Math.max(end, lastVisible));
+        for (int position = start; position <= end; position++) {
+            prefetch(position);
+        }
+    }
+
+    /**
+     * Call from the feed's onScrollStateChanged
+     */
+    public void onScrollStateChanged(int newState) {
+        if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+            flingVelocity = 0;
+        }
+    }
+
+    public void cancelAll() {
+        for (Prefetch prefetch : inFlight.values()) {
+            prefetch.request.cancel();
+        }
+        inFlight.clear();
+        lastStart = -1;
+        lastEnd = -1;
+    }
+
+    private int prefetchDepth() {
+        int multiplier = Math.min(MAX_DEPTH_MULTIPLIER, 1 + flingVelocity / VELOCITY_PER_STEP);
+        return memoryBudget.getPrefetchDepth() * multiplier;
+    }
+
+    private void prefetch(int position) {
+        Post post = adapter.getPost(position);
+        if (post.getPostId() == null || inFlight.containsKey(post.getPostId())) return;
+
+        int width = adapter.imageDecodeWidth(post);
+        if (width == 0) return;
+
+        String postId = post.getPostId();
+        Prefetch prefetch = new Prefetch(position);
+        inFlight.put(postId, prefetch);
+        // A memory cache hit calls back before load() returns
+        prefetch.request = imageLoader.load(post, width,
+                PostImageLoader.PRIORITY_PREFETCH, bitmap -> {
+                    // Now in the memory cache; the row acquires its own reference when bound
+                    imageLoader.release(bitmap);
+                    inFlight.remove(postId, prefetch);
+                });
+    }
+
+    // Cancel prefetches for rows outside [from, to], i.e. the ones scrolled away from
+    private void cancelOutside(int from, int to) {
+        Iterator<Prefetch> iterator = inFlight.values().iterator();
+        while (iterator.hasNext()) {
+            Prefetch prefetch = iterator.next();
+            if (prefetch.position < from || prefetch.position > to) {
+                prefetch.request.cancel();
+                iterator.remove();
+            }
+        }
+    }
+}
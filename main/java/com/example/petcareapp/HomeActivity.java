@@ -2,7 +2,6 @@ package com.example.petcareapp;
 
 import android.content.Intent;
 import android.os.Bundle;
-import android.os.Handler;
 import android.util.Log;
 import android.view.View;
 import android.widget.ImageView;
@@ -16,12 +15,21 @@ import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.MetadataChanges;
 import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
 
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 
 public class HomeActivity extends AppCompatActivity {
 
@@ -35,14 +43,40 @@ public class HomeActivity extends AppCompatActivity {
     private PostAdapter postAdapter;
     private List<Post> postList;
     private LinearLayoutManager layoutManager;
+    private MemoryBudget memoryBudget;
+    private FeedImagePrefetcher imagePrefetcher;
+    // Off-screen rows kept bound follow the memory pressure level
+    private final MemoryBudget.Listener memoryListener =
+            level -> recyclerView.setItemViewCacheSize(memoryBudget.getListWindow());
 
-    // Variables to save scroll position
-    private int savedScrollPosition = 0;
     private boolean isFirstLoad = true;
     private boolean isLoading = false;
 
+    // Swipe-to-refresh, returning to the screen and the first load all go through this
+    private RefreshScheduler refreshScheduler;
+
+    // Paging state (page size and prefetch threshold come from res/values/integers.xml)
+    private int pageSize;
+    private int prefetchThreshold;
+    private DocumentSnapshot lastVisibleDocument;
+    private boolean hasMorePosts = true;
+    private boolean isLoadingMore = false;
+
+    // Realtime mode: a snapshot listener on the head of the feed applies only document changes
+    private boolean realtimeFeed;
+    private ListenerRegistration headListener;
+    // False until a server snapshot since the last attach was merged; posts deleted while
+    // detached get no REMOVED change, so that snapshot is reconciled like a first page
+    private boolean headReconciled;
+
+    // Posts created here that the outbox has not written yet are shown optimistically
+    private MutationOutbox outbox;
+    private final Set<String> pendingPostIds = new HashSet<>();
+    private final MutationOutbox.Listener outboxListener = this::onOutboxSettled;
+
     private FirebaseFirestore db;
     private FirebaseAuth auth;
+    private PostStore postStore;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -52,16 +86,37 @@ public class HomeActivity extends AppCompatActivity {
         Log.d(TAG, "HomeActivity started");
 
         initFirebase();
+        initPaging();
         initViews();
         setupRecyclerView();
         setupSwipeRefreshLayout();
-        loadPosts();
+        showStoredPosts();
+        if (!realtimeFeed) {
+            // In realtime mode the first snapshot of the head listener fills the feed
+            refreshScheduler.requestRefresh();
+        }
         setupClickListeners();
     }
 
     private void initFirebase() {
         db = FirebaseFirestore.getInstance();
         auth = FirebaseAuth.getInstance();
+        postStore = new PostStore(this);
+        outbox = MutationOutbox.getInstance(this);
+
+        // Bring the avatar copied into our own posts up to date with our profile
+        FirebaseUser currentUser = auth.getCurrentUser();
+        if (currentUser != null) {
+            new AuthorAvatarUpdater(this).syncIfChanged(currentUser.getUid());
+        }
+    }
+
+    private void initPaging() {
+        pageSize = getResources().getInteger(R.integer.feed_page_size);
+        prefetchThreshold = getResources().getInteger(R.integer.feed_prefetch_threshold);
+        realtimeFeed = getResources().getBoolean(R.bool.feed_realtime);
+        refreshScheduler = new RefreshScheduler(
+                getResources().getInteger(R.integer.feed_refresh_min_interval_ms), this::refreshFeed);
     }
 
     private void initViews() {
@@ -74,26 +129,36 @@ public class HomeActivity extends AppCompatActivity {
     private void setupRecyclerView() {
         layoutManager = new LinearLayoutManager(this);
         recyclerView.setLayoutManager(layoutManager);
+        memoryBudget = MemoryBudget.getInstance(this);
+        recyclerView.setItemViewCacheSize(memoryBudget.getListWindow());
 
         postList = new ArrayList<>();
         postAdapter = new PostAdapter(postList, this);
         recyclerView.setAdapter(postAdapter);
+        postAdapter.registerAdapterDataObserver(anchorObserver);
+        imagePrefetcher = new FeedImagePrefetcher(recyclerView, layoutManager, postAdapter);
 
-        // Save scroll position when user scrolls
         recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
             @Override
             public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
                 super.onScrolled(recyclerView, dx, dy);
-                // Save the first visible item position
-                int firstVisibleItem = layoutManager.findFirstVisibleItemPosition();
-                if (firstVisibleItem != RecyclerView.NO_POSITION) {
-                    savedScrollPosition = firstVisibleItem;
+                // Decode the images of the rows about to come on screen
+                imagePrefetcher.onScrolled(dy);
+
+                // Request the next page once we get close to the end of the list
+                if (dy > 0) {
+                    int lastVisibleItem = layoutManager.findLastVisibleItemPosition();
+                    if (lastVisibleItem != RecyclerView.NO_POSITION
+                            && lastVisibleItem >= postList.size() - 1 - prefetchThreshold) {
+                        loadMorePosts();
+                    }
                 }
             }
 
             @Override
             public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
                 super.onScrollStateChanged(recyclerView, newState);
+                imagePrefetcher.onScrollStateChanged(newState);
                 // Disable swipe refresh when scrolling
                 if (newState == RecyclerView.SCROLL_STATE_DRAGGING) {
                     swipeRefreshLayout.setEnabled(false);
@@ -106,14 +171,7 @@ public class HomeActivity extends AppCompatActivity {
 
     private void setupSwipeRefreshLayout() {
         // Set the refresh listener
-        swipeRefreshLayout.setOnRefreshListener(() -> {
-            if (!isLoading) {
-                saveScrollPosition();
-                loadPosts();
-            } else {
-                swipeRefreshLayout.setRefreshing(false);
-            }
-        });
+        swipeRefreshLayout.setOnRefreshListener(() -> refreshScheduler.requestRefresh());
 
         // Configure the refresh colors
         swipeRefreshLayout.setColorSchemeResources(
@@ -132,15 +190,114 @@ public class HomeActivity extends AppCompatActivity {
         }
     }
 
-    private void loadPosts() {
-        if (isLoading) return;
+    /**
+     * Draw the feed from the local store right away; the network load revalidates it afterwards
+     */
+    private void showStoredPosts() {
+        postStore.loadRecent(getResources().getInteger(R.integer.feed_stored_posts), posts -> {
+            // Skip if the network already answered
+            if (!isFirstLoad || posts.isEmpty()) return;
+
+            for (Post post : posts) {
+                upsertPost(post);
+            }
+            submitPostList();
+            swipeRefreshLayout.setRefreshing(false);
+            Log.d(TAG, "Showing " + posts.size() + " stored posts");
+        });
+    }
+
+    /**
+     * Show the posts still waiting in the outbox at the top of the feed. Ids that settled
+     * while the activity was stopped are checked against Firestore.
+     */
+    private void showPendingPosts() {
+        outbox.loadPendingPosts(posts -> {
+            Set<String> queuedIds = new HashSet<>();
+            boolean added = false;
+            for (Post post : posts) {
+                queuedIds.add(post.getPostId());
+                if (indexOfPost(post.getPostId()) < 0) {
+                    pendingPostIds.add(post.getPostId());
+                    upsertPost(post);
+                    added = true;
+                }
+            }
+            for (String postId : new ArrayList<>(pendingPostIds)) {
+                if (!queuedIds.contains(postId)) {
+                    checkSettledPost(postId);
+                }
+            }
+            if (added) {
+                submitPostList();
+            }
+        });
+    }
+
+    // The outbox no longer has the post and its settle callback was missed: keep it if
+    // Firestore has it, else it was dropped and the optimistic copy goes away
+    private void checkSettledPost(String postId) {
+        db.collection("posts").document(postId).get()
+                .addOnSuccessListener(snapshot -> {
+                    if (!pendingPostIds.remove(postId)) return;
+                    if (snapshot.exists()) {
+                        if (!realtimeFeed) {
+                            refreshScheduler.requestRefresh();
+                        }
+                        return;
+                    }
+                    removePost(postId);
+                    submitPostList();
+                    Toast.makeText(this, "Failed to share post", Toast.LENGTH_SHORT).show();
+                })
+                .addOnFailureListener(e ->
+                        // Still protected; checked again the next time the feed is shown
+                        Log.w(TAG, "Error checking post " + postId + ": " + e.getMessage()));
+    }
+
+    private void onOutboxSettled(String key, Exception error) {
+        for (String postId : pendingPostIds) {
+            if (!MutationOutbox.postKey(postId).equals(key)) continue;
+
+            pendingPostIds.remove(postId);
+            if (error != null) {
+                removePost(postId);
+                submitPostList();
+                Toast.makeText(this, "Failed to share post: " + error.getMessage(),
+                        Toast.LENGTH_SHORT).show();
+            } else if (!realtimeFeed) {
+                refreshScheduler.requestRefresh();
+            }
+            return;
+        }
+    }
+
+    /**
+     * Refresh entry point for the scheduler. The first load revalidates a whole page;
+     * later refreshes only ask for posts newer than the head of the list.
+     */
+    private void refreshFeed(Runnable onComplete) {
+        if (isFirstLoad || postList.isEmpty() || postList.get(0).getTimestamp() == null) {
+            loadPosts(onComplete);
+        } else {
+            loadNewerPosts(postList.get(0).getTimestamp(), onComplete);
+        }
+    }
+
+    /**
+     * Load the first page of the feed and merge it into whatever is currently shown
+     */
+    private void loadPosts(Runnable onComplete) {
+        if (isLoading) {
+            onComplete.run();
+            return;
+        }
 
-        Log.d(TAG, "Loading posts...");
+        Log.d(TAG, "Loading first page of posts...");
         isLoading = true;
 
-        db.collection("posts")
-                .orderBy("timestamp", Query.Direction.DESCENDING)
-                .limit(50)
+        feedQuery()
+                .limit(pageSize)
                 .get()
                 .addOnCompleteListener(task -> {
                     isLoading = false;
@@ -149,36 +306,22 @@ public class HomeActivity extends AppCompatActivity {
                     swipeRefreshLayout.setRefreshing(false);
 
                     if (task.isSuccessful()) {
-                        List<Post> newPosts = new ArrayList<>();
-                        int loadedCount = 0;
-
-                        for (QueryDocumentSnapshot document : task.getResult()) {
-                            try {
-                                Post post = document.toObject(Post.class);
-                                post.setPostId(document.getId());
-                                newPosts.add(post);
-                                loadedCount++;
-                            } catch (Exception e) {
-                                Log.e(TAG, "Error converting document: " + e.getMessage());
-                            }
-                        }
+                        List<Post> newPosts = toPosts(task.getResult());
+                        int loadedCount = newPosts.size();
+
+                        // Reset the cursor to the end of this page
+                        List<DocumentSnapshot> documents = task.getResult().getDocuments();
+                        lastVisibleDocument = documents.isEmpty() ? null : documents.get(documents.size() - 1);
+                        hasMorePosts = documents.size() == pageSize;
 
                         // Update the post list
-                        updatePostsList(newPosts);
+                        updatePostsList(newPosts, documents.size() < pageSize,
+                                !task.getResult().getMetadata().isFromCache());
 
-                        // Restore scroll position if not first load
-                        if (!isFirstLoad) {
-                            restoreScrollPosition();
-                        } else {
-                            isFirstLoad = false;
-                        }
+                        isFirstLoad = false;
 
                         // Show feedback
-                        if (loadedCount > 0) {
-                            Toast.makeText(HomeActivity.this,
-                                    loadedCount + " posts loaded",
-                                    Toast.LENGTH_SHORT).show();
-                        } else {
+                        if (loadedCount == 0) {
                             Toast.makeText(HomeActivity.this,
                                     "No posts yet. Create the first one!",
                                     Toast.LENGTH_SHORT).show();
@@ -186,58 +329,376 @@ public class HomeActivity extends AppCompatActivity {
 
                     } else {
                         Log.e(TAG, "Error loading posts: " + task.getException());
-                        Toast.makeText(HomeActivity.this,
-                                "Failed to load posts: " + task.getException().getMessage(),
-                                Toast.LENGTH_SHORT).show();
+                        if (!postList.isEmpty()) {
+                            Toast.makeText(HomeActivity.this,
+                                    "You're offline. Showing saved posts",
+                                    Toast.LENGTH_SHORT).show();
+                        } else {
+                            Toast.makeText(HomeActivity.this,
+                                    "Failed to load posts: " + task.getException().getMessage(),
+                                    Toast.LENGTH_SHORT).show();
+                        }
                     }
-                })
-                .addOnFailureListener(e -> {
+                    onComplete.run();
+                });
+    }
+
+    /**
+     * Fetch only the posts newer than the newest one shown and prepend them. A full page
+     * means there may be a gap behind it, so fall back to reloading the first page.
+     */
+    private void loadNewerPosts(long newestTimestamp, Runnable onComplete) {
+        if (isLoading) {
+            onComplete.run();
+            return;
+        }
+
+        Log.d(TAG, "Loading posts newer than " + newestTimestamp);
+        isLoading = true;
+
+        feedQuery()
+                .whereGreaterThan("timestamp", newestTimestamp)
+                .limit(pageSize)
+                .get()
+                .addOnCompleteListener(task -> {
                     isLoading = false;
+
+                    if (!task.isSuccessful()) {
+                        Log.e(TAG, "Error loading newer posts: " + task.getException());
+                        swipeRefreshLayout.setRefreshing(false);
+                        onComplete.run();
+                        return;
+                    }
+
+                    if (task.getResult().size() >= pageSize) {
+                        loadPosts(onComplete);
+                        return;
+                    }
+
                     swipeRefreshLayout.setRefreshing(false);
-                    Toast.makeText(HomeActivity.this,
-                            "Network error: " + e.getMessage(),
-                            Toast.LENGTH_SHORT).show();
+                    List<Post> newerPosts = toPosts(task.getResult());
+                    for (Post post : newerPosts) {
+                        upsertPost(post);
+                    }
+                    submitPostList();
+                    postStore.savePosts(newerPosts);
+                    Log.d(TAG, "Prepended " + newerPosts.size() + " newer posts");
+                    onComplete.run();
                 });
     }
 
-    private void updatePostsList(List<Post> newPosts) {
-        // Clear existing posts and add new ones
-        postList.clear();
-        postList.addAll(newPosts);
-        postAdapter.notifyDataSetChanged();
+    /**
+     * Load the page that follows the last loaded document and append it to the feed
+     */
+    private void loadMorePosts() {
+        if (isLoading || isLoadingMore || !hasMorePosts || lastVisibleDocument == null) return;
 
-        // If it's the first load and we have posts, scroll to top
-        if (isFirstLoad && !postList.isEmpty()) {
-            recyclerView.post(() -> {
-                if (layoutManager != null) {
-                    layoutManager.scrollToPosition(0);
-                }
-            });
+        Log.d(TAG, "Loading next page of posts...");
+        isLoadingMore = true;
+
+        feedQuery()
+                .startAfter(lastVisibleDocument)
+                .limit(pageSize)
+                .get()
+                .addOnCompleteListener(task -> {
+                    isLoadingMore = false;
+
+                    if (task.isSuccessful()) {
+                        List<Post> nextPosts = toPosts(task.getResult());
+                        List<DocumentSnapshot> documents = task.getResult().getDocuments();
+                        if (!documents.isEmpty()) {
+                            lastVisibleDocument = documents.get(documents.size() - 1);
+                        }
+                        hasMorePosts = documents.size() == pageSize;
+
+                        // Stored copies of these posts may already be in the list
+                        for (Post post : nextPosts) {
+                            upsertPost(post);
+                        }
+                        submitPostList();
+                        postStore.savePosts(nextPosts);
+                        Log.d(TAG, "Appended " + nextPosts.size() + " posts");
+                    } else {
+                        Log.e(TAG, "Error loading more posts: " + task.getException());
+                    }
+                });
+    }
+
+    /**
+     * Subscribe to the newest page of posts; only added, modified and removed documents are applied
+     */
+    private void attachHeadListener() {
+        if (headListener != null) return;
+
+        headReconciled = false;
+        headListener = feedQuery()
+                .limit(pageSize)
+                .addSnapshotListener(MetadataChanges.INCLUDE, (snapshot, e) -> {
+                    if (e != null) {
+                        Log.e(TAG, "Feed listener error: " + e.getMessage());
+                        swipeRefreshLayout.setRefreshing(false);
+                        return;
+                    }
+                    if (snapshot != null) {
+                        applyHeadChanges(snapshot);
+                    }
+                });
+    }
+
+    private void detachHeadListener() {
+        if (headListener != null) {
+            headListener.remove();
+            headListener = null;
+        }
+    }
+
+    private void applyHeadChanges(QuerySnapshot snapshot) {
+        List<DocumentSnapshot> headDocuments = snapshot.getDocuments();
+        boolean headFull = headDocuments.size() >= pageSize;
+        Long oldestHeadTimestamp = headDocuments.isEmpty() ? null
+                : headDocuments.get(headDocuments.size() - 1).getLong("timestamp");
+
+        // The first snapshot doubles as the first page; a snapshot served from Firestore's
+        // cache only adds posts, the server-confirmed one also drops deleted stored posts
+        if (isFirstLoad) {
+            boolean fromServer = !snapshot.getMetadata().isFromCache();
+            if (!headDocuments.isEmpty()) {
+                lastVisibleDocument = headDocuments.get(headDocuments.size() - 1);
+            }
+            hasMorePosts = headFull;
+            updatePostsList(toPosts(snapshot), !headFull, fromServer);
+            if (fromServer) {
+                isFirstLoad = false;
+                headReconciled = true;
+                swipeRefreshLayout.setRefreshing(false);
+            }
+            return;
+        }
+
+        // Re-attached after onStop: merge the whole head once, keeping the paging cursor
+        if (!headReconciled) {
+            boolean fromServer = !snapshot.getMetadata().isFromCache();
+            updatePostsList(toPosts(snapshot), !headFull, fromServer);
+            headReconciled = fromServer;
+            return;
+        }
+
+        List<Post> changedPosts = new ArrayList<>();
+        for (DocumentChange change : snapshot.getDocumentChanges()) {
+            QueryDocumentSnapshot document = change.getDocument();
+            switch (change.getType()) {
+                case ADDED:
+                case MODIFIED:
+                    Post post = toPost(document);
+                    if (post != null) {
+                        upsertPost(post);
+                        changedPosts.add(post);
+                    }
+                    break;
+                case REMOVED:
+                    // A document leaving a full head window is usually just older than the
+                    // newest posts now; only drop it if it was deleted from inside the window
+                    Long timestamp = document.getLong("timestamp");
+                    if (!headFull || oldestHeadTimestamp == null || timestamp == null
+                            || timestamp > oldestHeadTimestamp) {
+                        removePost(document.getId());
+                        postStore.deletePost(document.getId());
+                    }
+                    break;
+            }
         }
+
+        submitPostList();
+        postStore.savePosts(changedPosts);
+        Log.d(TAG, "Applied " + snapshot.getDocumentChanges().size() + " feed changes");
     }
 
-    private void saveScrollPosition() {
-        if (layoutManager != null) {
-            int firstVisibleItem = layoutManager.findFirstVisibleItemPosition();
-            if (firstVisibleItem != RecyclerView.NO_POSITION) {
-                savedScrollPosition = firstVisibleItem;
-                Log.d(TAG, "Saved scroll position: " + savedScrollPosition);
+    private void upsertPost(Post post) {
+        int index = indexOfPost(post.getPostId());
+        if (index >= 0) {
+            postList.set(index, post);
+            return;
+        }
+
+        // Keep the list ordered newest first
+        long timestamp = post.getTimestamp() != null ? post.getTimestamp() : Long.MAX_VALUE;
+        int insertAt = 0;
+        while (insertAt < postList.size()) {
+            Long other = postList.get(insertAt).getTimestamp();
+            if (other != null && other < timestamp) break;
+            insertAt++;
+        }
+        postList.add(insertAt, post);
+    }
+
+    private void removePost(String postId) {
+        int index = indexOfPost(postId);
+        if (index >= 0) {
+            postList.remove(index);
+        }
+    }
+
+    private int indexOfPost(String postId) {
+        for (int i = 0; i < postList.size(); i++) {
+            if (Objects.equals(postList.get(i).getPostId(), postId)) {
+                return i;
             }
         }
+        return -1;
     }
 
-    private void restoreScrollPosition() {
-        if (layoutManager != null && savedScrollPosition >= 0) {
-            // Use postDelayed to ensure layout is complete
-            new Handler().postDelayed(() -> {
-                if (savedScrollPosition < postList.size()) {
-                    layoutManager.scrollToPositionWithOffset(savedScrollPosition, 0);
-                    Log.d(TAG, "Restored scroll position to: " + savedScrollPosition);
-                } else if (!postList.isEmpty()) {
-                    // If saved position is out of bounds, scroll to last position
-                    layoutManager.scrollToPosition(postList.size() - 1);
-                }
-            }, 100); // Small delay to ensure layout is ready
+    private Query feedQuery() {
+        return db.collection("posts")
+                .orderBy("timestamp", Query.Direction.DESCENDING);
+    }
+
+    private List<Post> toPosts(QuerySnapshot snapshot) {
+        List<Post> posts = new ArrayList<>();
+        for (QueryDocumentSnapshot document : snapshot) {
+            Post post = toPost(document);
+            if (post != null) {
+                posts.add(post);
+            }
+        }
+        return posts;
+    }
+
+    private Post toPost(DocumentSnapshot document) {
+        try {
+            Post post = document.toObject(Post.class);
+            post.setPostId(document.getId());
+            return post;
+        } catch (Exception e) {
+            Log.e(TAG, "Error converting document: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Merge a freshly fetched first page into the feed. Fetched posts replace their stored
+     * copies; posts inside the page's time range that the server no longer returns were
+     * deleted and are dropped. Older posts stay until paging reaches them. Pages served
+     * from Firestore's offline cache are never used to drop posts.
+     */
+    private void updatePostsList(List<Post> newPosts, boolean isLastPage, boolean fromServer) {
+        Set<String> fetchedIds = new HashSet<>();
+        for (Post post : newPosts) {
+            fetchedIds.add(post.getPostId());
+        }
+        Long oldestFetched = newPosts.isEmpty() ? null : newPosts.get(newPosts.size() - 1).getTimestamp();
+
+        Iterator<Post> iterator = postList.iterator();
+        while (iterator.hasNext()) {
+            Post post = iterator.next();
+            if (!fromServer || fetchedIds.contains(post.getPostId())
+                    || pendingPostIds.contains(post.getPostId())) continue;
+
+            boolean insideFetchedRange = isLastPage || (oldestFetched != null
+                    && post.getTimestamp() != null && post.getTimestamp() >= oldestFetched);
+            if (insideFetchedRange) {
+                iterator.remove();
+                postStore.deletePost(post.getPostId());
+            }
+        }
+
+        for (Post post : newPosts) {
+            upsertPost(post);
+        }
+        postStore.savePosts(newPosts);
+
+        submitPostList();
+    }
+
+    /**
+     * Hand postList to the adapter while keeping the first visible post where it is on screen.
+     * The anchor is captured when the diff is dispatched, before the layout changes, and only
+     * re-applied if rows were inserted, removed or moved above it. The commit callback runs
+     * before the next layout pass, so the scroll lands together with the data change.
+     */
+    private void submitPostList() {
+        postAdapter.updatePosts(postList, this::restoreScrollAnchor);
+    }
+
+    // Anchor of the diff being dispatched, and whether it moved rows at or above the anchor
+    private ScrollAnchor pendingAnchor;
+    private boolean anchorShifted;
+
+    private final RecyclerView.AdapterDataObserver anchorObserver = new RecyclerView.AdapterDataObserver() {
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            noteStructuralChange(positionStart);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            noteStructuralChange(positionStart);
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            noteStructuralChange(Math.min(fromPosition, toPosition));
+        }
+    };
+
+    private void noteStructuralChange(int position) {
+        if (pendingAnchor == null) {
+            // The layout still shows the list from before this diff
+            pendingAnchor = captureScrollAnchor();
+        }
+        if (pendingAnchor != null && position <= pendingAnchor.position) {
+            anchorShifted = true;
+        }
+    }
+
+    private ScrollAnchor captureScrollAnchor() {
+        int firstVisibleItem = layoutManager.findFirstVisibleItemPosition();
+        if (firstVisibleItem == RecyclerView.NO_POSITION) return null;
+
+        View firstVisibleView = layoutManager.findViewByPosition(firstVisibleItem);
+        int offset = firstVisibleView != null
+                ? firstVisibleView.getTop() - recyclerView.getPaddingTop() : 0;
+        // Read the id from the row: while a diff is dispatched the adapter already has the new list
+        RecyclerView.ViewHolder holder = recyclerView.findViewHolderForLayoutPosition(firstVisibleItem);
+        if (!(holder instanceof PostAdapter.PostViewHolder)) return null;
+        return new ScrollAnchor(((PostAdapter.PostViewHolder) holder).postId,
+                firstVisibleItem, firstVisibleItem == 0 && offset >= 0, offset);
+    }
+
+    private void restoreScrollAnchor() {
+        ScrollAnchor anchor = pendingAnchor;
+        boolean shifted = anchorShifted;
+        pendingAnchor = null;
+        anchorShifted = false;
+        // Appends below the anchor need nothing, and a fling must not be interrupted
+        if (anchor == null || !shifted
+                || recyclerView.getScrollState() != RecyclerView.SCROLL_STATE_IDLE) {
+            return;
+        }
+
+        if (anchor.atTop) {
+            // Reading from the very top: let newly prepended posts show
+            layoutManager.scrollToPositionWithOffset(0, 0);
+            return;
+        }
+
+        int index = indexOfPost(anchor.postId);
+        if (index >= 0) {
+            layoutManager.scrollToPositionWithOffset(index, anchor.offset);
+        }
+    }
+
+    // First visible post and its pixel offset from the top of the list
+    private static final class ScrollAnchor {
+        final String postId;
+        final int position;
+        final boolean atTop;
+        final int offset;
+
+        ScrollAnchor(String postId, int position, boolean atTop, int offset) {
+            this.postId = postId;
+            this.position = position;
+            this.atTop = atTop;
+            this.offset = offset;
         }
     }
 
@@ -298,24 +759,36 @@ public class HomeActivity extends AppCompatActivity {
         startActivity(intent);
     }
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+        memoryBudget.addListener(memoryListener);
+        recyclerView.setItemViewCacheSize(memoryBudget.getListWindow());
+        outbox.addListener(outboxListener);
+        showPendingPosts();
+        if (realtimeFeed) {
+            attachHeadListener();
+        }
+    }
+
     @Override
     protected void onResume() {
         super.onResume();
-        // Auto-refresh when coming back from CreatePostActivity
-        if (!isFirstLoad) {
-            new Handler().postDelayed(() -> {
-                if (!isLoading) {
-                    saveScrollPosition();
-                    loadPosts();
-                }
-            }, 300);
+        // Auto-refresh when coming back from CreatePostActivity (the head listener covers this in realtime mode)
+        if (!realtimeFeed && !isFirstLoad) {
+            refreshScheduler.requestRefresh();
         }
     }
 
     @Override
-    protected void onPause() {
-        super.onPause();
-        // Save scroll position when leaving
-        saveScrollPosition();
+    protected void onStop() {
+        super.onStop();
+        refreshScheduler.cancel();
+        swipeRefreshLayout.setRefreshing(false);
+        detachHeadListener();
+        memoryBudget.removeListener(memoryListener);
+        outbox.removeListener(outboxListener);
+        imagePrefetcher.cancelAll();
+        Log.d(TAG, "Image cache: " + PostImageLoader.getInstance(this).getCache().getStats());
     }
 }
\ No newline at end of file
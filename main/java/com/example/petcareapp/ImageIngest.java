@@ -0,0 +1,169 @@
+package com.example.petcareapp;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.net.Uri;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+/**
+ * Turns a picked image URI into upload-ready ImageVariants plus a small preview.
+ * The source is read once into one buffer; bounds, EXIF orientation and pixels are all
+ * decoded from that buffer. Scaling happens inside the decode and rotation in a single
+ * transform afterwards, so at most two bitmaps exist at any time. The buffers live only
+ * as long as one ingest, so nothing sized for a large photo outlives it.
+ */
+public class ImageIngest {
+
+    private static final int INITIAL_BUFFER_SIZE = 512 * 1024;
+    private static final int PREVIEW_SIZE = 400;
+
+    public static final class Result {
+        public final ImageVariants variants;
+        public final Bitmap preview;
+
+        Result(ImageVariants variants, Bitmap preview) {
+            this.variants = variants;
+            this.preview = preview;
+        }
+    }
+
+    // ByteArrayOutputStream that lets us decode from its buffer without copying it
+    private static final class SourceBuffer extends ByteArrayOutputStream {
+        SourceBuffer(int size) { super(size); }
+        byte[] data() { return buf; }
+    }
+
+    private final ContentResolver contentResolver;
+
+    public ImageIngest(ContentResolver contentResolver) {
+        this.contentResolver = contentResolver;
+    }
+
+    /**
+     * Read, orient, fit within maxWidth x maxHeight and encode the image. Call from a
+     * background thread. An interrupted thread stops between stages with an
+     * InterruptedIOException.
+     */
+    public Result ingest(Uri uri, int maxWidth, int maxHeight, int quality) throws IOException {
+        SourceBuffer sourceBuffer = readSource(uri);
+        checkInterrupted();
+        byte[] data = sourceBuffer.data();
+        int length = sourceBuffer.size();
+        // Identifies the photo itself, whatever this device's encoder makes of it
+        String sourceHash = PostImageStore.contentHash(data, 0, length);
+
+        // Bounds
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(data, 0, length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            throw new IOException("Not a decodable image");
+        }
+
+        // Orientation, from the same bytes
+        int rotation = readRotation(data, length);
+        boolean swapsSides = rotation == 90 || rotation == 270;
+        int orientedWidth = swapsSides ? options.outHeight : options.outWidth;
+        int orientedHeight = swapsSides ? options.outWidth : options.outHeight;
+
+        // Final size that fits the limits while keeping the aspect ratio
+        float fit = Math.min(1f, Math.min((float) maxWidth / orientedWidth,
+                (float) maxHeight / orientedHeight));
+        int targetSourceWidth = Math.max(1, Math.round(options.outWidth * fit));
+
+        // Pixels: inSampleSize for the coarse step, density scaling for the exact one
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = BitmapDecoder.calculateInSampleSize(options.outWidth, targetSourceWidth);
+        int sampledWidth = (options.outWidth + options.inSampleSize - 1) / options.inSampleSize;
+        if (sampledWidth > targetSourceWidth) {
+            options.inScaled = true;
+            options.inDensity = sampledWidth;
+            options.inTargetDensity = targetSourceWidth;
+        }
+        options.inPreferredConfig = Bitmap.Config.RGB_565; // Use less memory
+        Bitmap bitmap = BitmapFactory.decodeByteArray(data, 0, length, options);
+        if (bitmap == null) {
+            throw new IOException("Failed to decode image");
+        }
+
+        if (Thread.currentThread().isInterrupted()) {
+            bitmap.recycle();
+            throw new InterruptedIOException();
+        }
+
+        if (rotation != 0) {
+            Matrix matrix = new Matrix();
+            matrix.postRotate(rotation);
+            Bitmap rotated = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+            if (rotated != bitmap) {
+                bitmap.recycle();
+                bitmap = rotated;
+            }
+        }
+
+        // Every variant's JPEG output streams into one buffer; only the final bytes are copied out
+        ByteArrayOutputStream encodeBuffer = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        ImageVariants variants = ImageVariants.encode(bitmap, sourceHash, quality, encodeBuffer);
+        Bitmap preview = scaleToFit(bitmap, PREVIEW_SIZE);
+        if (preview != bitmap) {
+            bitmap.recycle();
+        }
+        return new Result(variants, preview);
+    }
+
+    private static void checkInterrupted() throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException();
+        }
+    }
+
+    private SourceBuffer readSource(Uri uri) throws IOException {
+        SourceBuffer sourceBuffer = new SourceBuffer(INITIAL_BUFFER_SIZE);
+        try (InputStream input = contentResolver.openInputStream(uri)) {
+            if (input == null) {
+                throw new IOException("Cannot open " + uri);
+            }
+            byte[] copyBuffer = new byte[16 * 1024];
+            int read;
+            while ((read = input.read(copyBuffer)) != -1) {
+                sourceBuffer.write(copyBuffer, 0, read);
+            }
+        }
+        return sourceBuffer;
+    }
+
+    private static int readRotation(byte[] data, int length) {
+        try {
+            ExifInterface exif = new ExifInterface(new ByteArrayInputStream(data, 0, length));
+            switch (exif.getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL)) {
+                case ExifInterface.ORIENTATION_ROTATE_90:
+                    return 90;
+                case ExifInterface.ORIENTATION_ROTATE_180:
+                    return 180;
+                case ExifInterface.ORIENTATION_ROTATE_270:
+                    return 270;
+                default:
+                    return 0;
+            }
+        } catch (IOException e) {
+            // No readable EXIF, keep the image as stored
+            return 0;
+        }
+    }
+
+    private static Bitmap scaleToFit(Bitmap source, int maxSize) {
+        float scale = Math.min(1f, (float) maxSize / Math.max(source.getWidth(), source.getHeight()));
+        if (scale >= 1f) return source;
+        return Bitmap.createScaledBitmap(source,
+                Math.max(1, Math.round(source.getWidth() * scale)),
+                Math.max(1, Math.round(source.getHeight() * scale)), true);
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.petcareapp;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prepares a picked photo for upload for both create-post screens: every image is
+ * oriented, fitted to MAX_WIDTH x MAX_HEIGHT and encoded at QUALITY by ImageIngest.
+ * Work runs on one shared worker thread. Picking another photo cancels the previous
+ * one, and nothing is delivered once the owning screen is destroyed.
+ */
+public class ImageProcessingPipeline implements DefaultLifecycleObserver {
+
+    public static final int MAX_WIDTH = 1200;
+    public static final int MAX_HEIGHT = 1600;
+    public static final int QUALITY = 75;
+
+    public interface Callback {
+        // Called on the main thread for the most recent photo only
+        void onProcessed(ImageIngest.Result result);
+
+        void onError(Exception e);
+    }
+
+    // Images are processed one at a time; a short queue is enough since older work is cancelled
+    private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(4),
+            new ThreadPoolExecutor.DiscardOldestPolicy());
+    private static ImageIngest ingest;
+
+    private static synchronized ImageIngest ingest(Context context) {
+        if (ingest == null) {
+            ingest = new ImageIngest(context.getApplicationContext().getContentResolver());
+        }
+        return ingest;
+    }
+
+    private final Context appContext;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private Future<?> current;
+    private int generation = 0; // Main thread only
+    private boolean destroyed = false;
+
+    public ImageProcessingPipeline(Context context, LifecycleOwner owner) {
+        this.appContext = context.getApplicationContext();
+        owner.getLifecycle().addObserver(this);
+    }
+
+    /**
+     * Process a photo, cancelling whatever was being processed before. Call on the main thread.
+     */
+    public void process(Uri uri, Callback callback) {
+        cancel();
+        if (destroyed) return;
+
+        int requestGeneration = generation;
+        current = executor.submit(() -> {
+            try {
+                ImageIngest.Result result = ingest(appContext).ingest(uri, MAX_WIDTH, MAX_HEIGHT, QUALITY);
+                mainHandler.post(() -> {
+                    if (requestGeneration != generation || destroyed) {
+                        // Superseded while in flight
+                        result.preview.recycle();
+                        return;
+                    }
+                    callback.onProcessed(result);
+                });
+            } catch (Exception e) {
+                if (Thread.currentThread().isInterrupted()) return;
+                mainHandler.post(() -> {
+                    if (requestGeneration == generation && !destroyed) {
+                        callback.onError(e);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Drop the photo being processed, if any; its result will not be delivered
+     */
+    public void cancel() {
+        generation++;
+        if (current != null) {
+            current.cancel(true);
+            current = null;
+        }
+    }
+
+    @Override
+    public void onDestroy(@NonNull LifecycleOwner owner) {
+        cancel();
+        destroyed = true;
+        owner.getLifecycle().removeObserver(this);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.petcareapp;
+
+import android.graphics.Bitmap;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The encoded sizes of one post image, produced together at upload time: a full-size
+ * JPEG, a feed-width medium JPEG and a tiny inline thumbnail. Readers pick the smallest
+ * variant that covers the view they draw into. A variant's id, used in PostImageStore and
+ * as its key in the client caches, is derived from the SHA-256 of the picked source file
+ * and the variant's size and quality. The same photo therefore gets the same ids on any
+ * device, even where encoders produce different JPEG bytes.
+ */
+public class ImageVariants {
+
+    // With the 3/4 scale PostImageStore.selectImageId accepts, this covers a 1080 px wide feed
+    public static final int MEDIUM_WIDTH = 810;
+    // BlurHash is computed from a tiny copy; more pixels would not change the result
+    private static final int PLACEHOLDER_SOURCE_WIDTH = 32;
+
+    public final byte[] fullBytes;
+    public final String fullImageId;
+    public final byte[] mediumBytes; // Null when the full image is already feed-sized
+    public final String mediumImageId;
+    public final String thumbnailBase64;
+    public final String placeholderHash;
+    public final int width;
+    public final int height;
+
+    private ImageVariants(byte[] fullBytes, String fullImageId, byte[] mediumBytes,
+                          String mediumImageId, String thumbnailBase64, String placeholderHash,
+                          int width, int height) {
+        this.fullBytes = fullBytes;
+        this.fullImageId = fullImageId;
+        this.mediumBytes = mediumBytes;
+        this.mediumImageId = mediumImageId;
+        this.thumbnailBase64 = thumbnailBase64;
+        this.placeholderHash = placeholderHash;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Encode every variant from one decoded bitmap of the source hashed to sourceHash; each
+     * smaller size is scaled from the previous one so the source is only read once
+     */
+    public static ImageVariants encode(Bitmap full, String sourceHash, int quality) {
+        return encode(full, sourceHash, quality, new ByteArrayOutputStream());
+    }
+
+    /**
+     * Same as {@link #encode(Bitmap, String, int)}, compressing through a caller-owned
+     * stream so one buffer serves every variant
+     */
+    public static ImageVariants encode(Bitmap full, String sourceHash, int quality,
+                                       ByteArrayOutputStream baos) {
+        byte[] fullBytes = compress(full, quality, baos);
+        String fullImageId = variantId(sourceHash, full.getWidth(), full.getHeight(), quality);
+
+        Bitmap medium = full;
+        byte[] mediumBytes = null;
+        String mediumImageId = null;
+        if (full.getWidth() > MEDIUM_WIDTH) {
+            int mediumHeight = Math.max(1, full.getHeight() * MEDIUM_WIDTH / full.getWidth());
+            medium = Bitmap.createScaledBitmap(full, MEDIUM_WIDTH, mediumHeight, true);
+            mediumBytes = compress(medium, quality, baos);
+            mediumImageId = variantId(sourceHash, MEDIUM_WIDTH, mediumHeight, quality);
+        }
+
+        String thumbnailBase64 = PostImageStore.createThumbnailBase64(medium);
+        String placeholderHash = createPlaceholderHash(medium);
+        if (medium != full) {
+            medium.recycle();
+        }
+        return new ImageVariants(fullBytes, fullImageId, mediumBytes, mediumImageId,
+                thumbnailBase64, placeholderHash, full.getWidth(), full.getHeight());
+    }
+
+    private static String createPlaceholderHash(Bitmap source) {
+        int height = Math.max(1, source.getHeight() * PLACEHOLDER_SOURCE_WIDTH / source.getWidth());
+        Bitmap tiny = Bitmap.createScaledBitmap(source, PLACEHOLDER_SOURCE_WIDTH, height, true);
+        // More components along the longer side
+        boolean landscape = source.getWidth() >= source.getHeight();
+        String hash = BlurHash.encode(tiny, landscape ? 4 : 3, landscape ? 3 : 4);
+        if (tiny != source) {
+            tiny.recycle();
+        }
+        return hash;
+    }
+
+    private static String variantId(String sourceHash, int width, int height, int quality) {
+        String variant = sourceHash + "/" + width + "x" + height + "/q" + quality;
+        return PostImageStore.contentHash(variant.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] compress(Bitmap bitmap, int quality, ByteArrayOutputStream baos) {
+        baos.reset();
+        bitmap.compress(Bitmap.CompressFormat.JPEG, quality, baos);
+        return baos.toByteArray();
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.petcareapp;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Turns like/unlike taps into as few writes as possible. Taps on a post within
+ * DEBOUNCE_MS collapse into one final state, which is queued in the MutationOutbox
+ * (where a like undone before it is sent cancels out). The outbox writes the like
+ * records kept by LikeIndex and, only if they changed, increments a PostCounters shard
+ * server-side, so concurrent likers never overwrite each other. Taps are only taken once
+ * LikeIndex has loaded the post's state. Until the outbox has settled a post the feed
+ * shows the optimistic state through isLiked()/likeCount(). Main thread only.
+ */
+public class LikeCoalescer implements MutationOutbox.Listener {
+
+    private static final long DEBOUNCE_MS = 400;
+
+    public interface Listener {
+        // The server has this user's final state for the post. countDelta is how much the
+        // like count changed since the first tap, when the loaded post counted baseCount likes.
+        void onLikeSettled(String postId, int baseCount, int countDelta);
+
+        // The outbox gave up on the queued state; the post shows its last known state again
+        void onLikeFailed(String postId, Exception e);
+    }
+
+    private static final class PendingLike {
+        boolean initial;   // State before the first tap
+        boolean queued;    // Last state handed to the outbox
+        boolean desired;   // What the user last tapped
+        int baseCount;     // The loaded post's like count at the first tap
+        boolean outstanding;
+        Runnable flush;
+    }
+
+    private final MutationOutbox outbox;
+    private final String userId;
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final LikeIndex likeIndex;
+    private final Map<String, PendingLike> pending = new HashMap<>();
+
+    public LikeCoalescer(Context context, String userId, Listener listener) {
+        this.outbox = MutationOutbox.getInstance(context);
+        this.userId = userId;
+        this.listener = listener;
+        this.likeIndex = LikeIndex.getInstance(userId);
+    }
+
+    public boolean isLiked(Post post) {
+        PendingLike like = pending.get(post.getPostId());
+        return like != null ? like.desired : likeIndex.isLiked(post.getPostId());
+    }
+
+    /**
+     * The post's count adjusted by the taps that have not settled yet. Once a state was
+     * queued, a loaded count that moved away from baseCount is taken to include it
+     * already (a snapshot can arrive before the outbox settles), so only taps that were
+     * not queued yet are added on top of it.
+     */
+    public int likeCount(Post post) {
+        PendingLike like = pending.get(post.getPostId());
+        if (like == null) return post.getLikeCount();
+        int unqueued = (like.desired ? 1 : 0) - (like.queued ? 1 : 0);
+        int queued = (like.queued ? 1 : 0) - (like.initial ? 1 : 0);
+        int adjusted = post.getLikeCount() == like.baseCount
+                ? like.baseCount + queued + unqueued
+                : post.getLikeCount() + unqueued;
+        return Math.max(0, adjusted);
+    }
+
+    /**
+     * Flip the user's like state. Returns false, changing nothing, while LikeIndex has not
+     * loaded the post's state: the first tap would be based on a guess.
+     */
+    public boolean toggle(Post post) {
+        String postId = post.getPostId();
+        PendingLike like = pending.get(postId);
+        if (like == null) {
+            if (!likeIndex.isKnown(postId)) return false;
+            like = new PendingLike();
+            like.initial = likeIndex.isLiked(postId);
+            like.queued = like.initial;
+            like.desired = like.initial;
+            like.baseCount = post.getLikeCount();
+            // Only listen while something is pending so the outbox never holds a stale adapter
+            if (pending.isEmpty()) {
+                outbox.addListener(this);
+            }
+            pending.put(postId, like);
+        }
+        like.desired = !like.desired;
+
+        if (like.flush != null) {
+            mainHandler.removeCallbacks(like.flush);
+        }
+        PendingLike scheduled = like;
+        like.flush = () -> flush(postId, scheduled);
+        mainHandler.postDelayed(like.flush, DEBOUNCE_MS);
+        return true;
+    }
+
+    private void flush(String postId, PendingLike like) {
+        like.flush = null;
+        if (like.desired != like.queued) {
+            like.queued = like.desired;
+            like.outstanding = true;
+            outbox.enqueueLike(postId, userId, like.queued);
+        } else if (!like.outstanding) {
+            // Tapped back to the original state before anything was queued
+            settle(postId);
+            listener.onLikeSettled(postId, like.baseCount, 0);
+        }
+    }
+
+    @Override
+    public void onSettled(String key, @Nullable Exception error) {
+        for (Map.Entry<String, PendingLike> entry : pending.entrySet()) {
+            String postId = entry.getKey();
+            if (!MutationOutbox.likeKey(postId).equals(key)) continue;
+
+            PendingLike like = entry.getValue();
+            like.outstanding = false;
+            if (error != null) {
+                if (like.flush != null) {
+                    mainHandler.removeCallbacks(like.flush);
+                }
+                settle(postId);
+                listener.onLikeFailed(postId, error);
+            } else {
+                likeIndex.setLiked(postId, like.queued);
+                // A tap since then is still debouncing and will queue again
+                if (like.flush == null) {
+                    settle(postId);
+                    listener.onLikeSettled(postId, like.baseCount,
+                            (like.queued ? 1 : 0) - (like.initial ? 1 : 0));
+                }
+            }
+            return;
+        }
+    }
+
+    private void settle(String postId) {
+        pending.remove(postId);
+        if (pending.isEmpty()) {
+            outbox.removeListener(this);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.petcareapp;
+
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Which posts the signed-in user has liked. A like is stored twice: posts/{postId}/likes/{userId}
+ * lists a post's likers, and users/{userId}/likedPosts/{postId} is this user's index, which
+ * the feed queries for just the posts it shows. Main thread only.
+ */
+public class LikeIndex {
+
+    // Firestore's limit for whereIn on document ids
+    private static final int MAX_BATCH_SIZE = 30;
+
+    private static LikeIndex instance;
+
+    public static synchronized LikeIndex getInstance(String userId) {
+        if (instance == null || !instance.userId.equals(userId)) {
+            instance = new LikeIndex(userId);
+        }
+        return instance;
+    }
+
+    public static DocumentReference likeRef(FirebaseFirestore db, String postId, String userId) {
+        return db.collection("posts").document(postId).collection("likes").document(userId);
+    }
+
+    public static DocumentReference indexRef(FirebaseFirestore db, String userId, String postId) {
+        return db.collection("users").document(userId).collection("likedPosts").document(postId);
+    }
+
+    private final FirebaseFirestore db = FirebaseFirestore.getInstance();
+    private final String userId;
+    private final Set<String> liked = new HashSet<>();
+    // Posts whose state has been loaded or is being loaded
+    private final Set<String> known = new HashSet<>();
+    // Posts whose state has been loaded
+    private final Set<String> loaded = new HashSet<>();
+
+    private LikeIndex(String userId) {
+        this.userId = userId;
+    }
+
+    public boolean isLiked(String postId) {
+        return liked.contains(postId);
+    }
+
+    /**
+     * Whether isLiked() answers from a loaded state rather than a guess
+     */
+    public boolean isKnown(String postId) {
+        return loaded.contains(postId);
+    }
+
+    /**
+     * Record a like state the server has acknowledged
+     */
+    public void setLiked(String postId, boolean isLiked) {
+        known.add(postId);
+        loaded.add(postId);
+        if (isLiked) {
+            liked.add(postId);
+        } else {
+            liked.remove(postId);
+        }
+    }
+
+    /**
+     * Load the like state of the given posts that are not known yet. onLoaded runs once
+     * per batch that found at least one like.
+     */
+    public void load(Collection<String> postIds, Runnable onLoaded) {
+        List<String> missing = new ArrayList<>();
+        for (String postId : postIds) {
+            if (postId != null && known.add(postId)) {
+                missing.add(postId);
+            }
+        }
+        for (int start = 0; start < missing.size(); start += MAX_BATCH_SIZE) {
+            fetch(new ArrayList<>(missing.subList(start, Math.min(missing.size(), start + MAX_BATCH_SIZE))), onLoaded);
+        }
+    }
+
+    private void fetch(List<String> postIds, Runnable onLoaded) {
+        db.collection("users").document(userId).collection("likedPosts")
+                .whereIn(FieldPath.documentId(), postIds)
+                .get()
+                .addOnSuccessListener(snapshot -> {
+                    for (DocumentSnapshot document : snapshot.getDocuments()) {
+                        liked.add(document.getId());
+                    }
+                    loaded.addAll(postIds);
+                    if (!snapshot.isEmpty()) {
+                        onLoaded.run();
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    // Ask again next time these posts are shown
+                    known.removeAll(postIds);
+                });
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.petcareapp;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+/**
+ * On-device SQLite database shared by the local stores
+ */
+public class LocalDatabase extends SQLiteOpenHelper {
+
+    private static final String DATABASE_NAME = "petcare.db";
+    private static final int DATABASE_VERSION = 3;
+
+    static final String TABLE_POSTS = "posts";
+    static final String COLUMN_POST_ID = "post_id";
+    static final String COLUMN_TIMESTAMP = "timestamp";
+    static final String COLUMN_DATA = "data";
+
+    // Version 2: pending user mutations, see MutationOutbox
+    static final String TABLE_OUTBOX = "outbox";
+    static final String COLUMN_ID = "id";
+    static final String COLUMN_KEY = "mutation_key";
+    static final String COLUMN_TYPE = "type";
+    static final String COLUMN_CREATED_AT = "created_at";
+    static final String COLUMN_IN_FLIGHT = "in_flight";
+
+    private static LocalDatabase instance;
+
+    public static synchronized LocalDatabase getInstance(Context context) {
+        if (instance == null) {
+            instance = new LocalDatabase(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private LocalDatabase(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_POSTS + " ("
+                + COLUMN_POST_ID + " TEXT PRIMARY KEY, "
+                + COLUMN_TIMESTAMP + " INTEGER, "
+                + COLUMN_DATA + " TEXT NOT NULL)");
+        db.execSQL("CREATE INDEX idx_posts_timestamp ON " + TABLE_POSTS
+                + " (" + COLUMN_TIMESTAMP + " DESC)");
+        createOutbox(db);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 2) {
+            createOutbox(db);
+        }
+        if (oldVersion < 3) {
+            // Version 3 stops storing inline legacy images; drop the rows that still have one
+            db.execSQL("DELETE FROM " + TABLE_POSTS + " WHERE " + COLUMN_DATA + " LIKE '%\"imageBase64\":\"%'");
+        }
+    }
+
+    private static void createOutbox(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_OUTBOX + " ("
+                + COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + COLUMN_KEY + " TEXT NOT NULL, "
+                + COLUMN_TYPE + " TEXT NOT NULL, "
+                + COLUMN_DATA + " TEXT NOT NULL, "
+                + COLUMN_CREATED_AT + " INTEGER NOT NULL, "
+                + COLUMN_IN_FLIGHT + " INTEGER NOT NULL DEFAULT 0)");
+        db.execSQL("CREATE INDEX idx_outbox_key ON " + TABLE_OUTBOX + " (" + COLUMN_KEY + ")");
+    }
+}
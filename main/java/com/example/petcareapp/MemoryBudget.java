@@ -0,0 +1,151 @@
+package com.example.petcareapp;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Central memory budget for the feed. Listens to the system's trim callbacks and turns
+ * them into a pressure level that the image caches, the prefetcher and the list window
+ * size themselves from. Pressure decays back to normal after a quiet period, since the
+ * system never signals that memory has recovered.
+ */
+public class MemoryBudget implements ComponentCallbacks2 {
+
+    public static final int LEVEL_NORMAL = 0;
+    public static final int LEVEL_MODERATE = 1;
+    public static final int LEVEL_CRITICAL = 2;
+
+    private static final long PRESSURE_DECAY_MS = 60_000;
+    private static final int MIN_DECODE_WIDTH = 120;
+
+    // Indexed by level
+    private static final float[] CACHE_FRACTION = {1f, 0.5f, 0.125f};
+    private static final int[] PREFETCH_DEPTH = {6, 2, 0};
+    private static final int[] LIST_WINDOW = {6, 3, 1};
+    private static final float[] DECODE_SCALE = {1f, 0.5f, 0.5f};
+    // Safety cap for one decode; far above a feed bitmap, it only matters on very small heaps
+    private static final int[] DECODE_HEAP_DIVISOR = {8, 16, 64};
+
+    public interface Listener {
+        // Called on the main thread whenever the pressure level changes
+        void onMemoryLevelChanged(int level);
+    }
+
+    private static MemoryBudget instance;
+
+    public static synchronized MemoryBudget getInstance(Context context) {
+        if (instance == null) {
+            instance = new MemoryBudget();
+            context.getApplicationContext().registerComponentCallbacks(instance);
+        }
+        return instance;
+    }
+
+    private final long maxHeap = Runtime.getRuntime().maxMemory();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private volatile int level = LEVEL_NORMAL;
+    private volatile long pressureAt = 0;
+
+    private MemoryBudget() {
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public int getLevel() {
+        if (level != LEVEL_NORMAL && SystemClock.elapsedRealtime() - pressureAt > PRESSURE_DECAY_MS) {
+            setLevel(LEVEL_NORMAL);
+        }
+        return level;
+    }
+
+    /**
+     * Fraction of their normal size the image caches should keep at the current level
+     */
+    public float getCacheFraction() {
+        return CACHE_FRACTION[getLevel()];
+    }
+
+    /**
+     * How many rows ahead of the visible ones may be decoded in advance
+     */
+    public int getPrefetchDepth() {
+        return PREFETCH_DEPTH[getLevel()];
+    }
+
+    /**
+     * How many off-screen rows the list may keep bound
+     */
+    public int getListWindow() {
+        return LIST_WINDOW[getLevel()];
+    }
+
+    /**
+     * Width to decode an image with the given height/width ratio at: targetWidth scaled
+     * down under pressure (half from MODERATE on), then halved further while a single
+     * decode would exceed its share of the heap; 0 if even a small decode should be skipped
+     */
+    public int affordableWidth(int targetWidth, float aspectRatio) {
+        int current = getLevel();
+        long maxBytes = maxHeap / DECODE_HEAP_DIVISOR[current];
+        int width = Math.max(Math.min(targetWidth, MIN_DECODE_WIDTH),
+                Math.round(targetWidth * DECODE_SCALE[current]));
+        while (width >= MIN_DECODE_WIDTH) {
+            // Feed images decode as RGB_565 JPEGs, 2 bytes per pixel
+            long bytes = 2L * width * Math.max(1, Math.round(width * aspectRatio));
+            if (bytes <= maxBytes) return width;
+            width /= 2;
+        }
+        return 0;
+    }
+
+    @Override
+    public void onTrimMemory(int trimLevel) {
+        if (trimLevel >= TRIM_MEMORY_MODERATE || trimLevel == TRIM_MEMORY_RUNNING_CRITICAL
+                || trimLevel == TRIM_MEMORY_RUNNING_LOW) {
+            raise(LEVEL_CRITICAL);
+        } else if (trimLevel >= TRIM_MEMORY_RUNNING_MODERATE) {
+            // Includes UI_HIDDEN and BACKGROUND: nothing is on screen to pay for the caches
+            raise(LEVEL_MODERATE);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        raise(LEVEL_CRITICAL);
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+
+    private void raise(int newLevel) {
+        pressureAt = SystemClock.elapsedRealtime();
+        if (newLevel > level) {
+            setLevel(newLevel);
+        }
+    }
+
+    private void setLevel(int newLevel) {
+        if (level == newLevel) return;
+        level = newLevel;
+        mainHandler.post(() -> {
+            for (Listener listener : listeners) {
+                listener.onMemoryLevelChanged(newLevel);
+            }
+        });
+    }
+}
@@ -0,0 +1,802 @@
+package com.example.petcareapp;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.Source;
+import com.google.firebase.firestore.WriteBatch;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Durable queue of the user's writes (likes and new posts), stored in LocalDatabase so
+ * nothing is lost to a flaky network or a killed process. Opposite likes of the same post
+ * cancel out while queued. Queued posts are sent together in WriteBatches when the device
+ * is online, likes one transaction each so the like counter follows the like record;
+ * transient failures are retried with exponential backoff, and a returning network
+ * connection retries immediately.
+ *
+ * New posts are also handed to PostUploadWorker, which drains the queue in the background
+ * and survives the app being closed.
+ *
+ * Once a batch is committed Firestore owns it (it persists and retries pending writes
+ * itself), so committed rows are never sent a second time. Rows stay in flight until the
+ * commit finishes, however long that takes. Rows a killed process left in flight are
+ * checked against Firestore before they are either completed or queued again.
+ */
+public class MutationOutbox {
+
+    private static final String TAG = "MutationOutbox";
+
+    static final String TYPE_LIKE = "like";
+    static final String TYPE_POST = "post";
+
+    private static final String IMAGE_DIR = "outbox_images";
+    // Firestore's limits are 500 writes and 10MB per batch; leave room for overhead
+    private static final int MAX_BATCH_WRITES = 500;
+    private static final long MAX_BATCH_BYTES = 8L * 1024 * 1024;
+    private static final long INITIAL_BACKOFF_MS = 2000;
+    private static final long MAX_BACKOFF_MS = 5 * 60 * 1000;
+    private static final long LOOKUP_TIMEOUT_S = 20;
+    private static final long COMMIT_TIMEOUT_S = 60;
+
+    // in_flight values: queued, committed by this process, committed by an earlier one
+    private static final int QUEUED = 0;
+    private static final int IN_FLIGHT = 1;
+    private static final int UNCONFIRMED = 2;
+
+    public interface Listener {
+        // Called on the main thread once nothing is queued for key any more. error is null
+        // if the mutations were written (or cancelled each other out), else they were dropped.
+        void onSettled(String key, @Nullable Exception error);
+    }
+
+    public interface PendingPostsCallback {
+        void onLoaded(List<Post> posts);
+    }
+
+    public interface Progress {
+        // Called on the flush thread after count more posts were written (or dropped as invalid)
+        void onPostsSent(int count);
+    }
+
+    private static final class Row {
+        long id;
+        String key;
+        String type;
+        JSONObject data;
+    }
+
+    private static MutationOutbox instance;
+
+    public static synchronized MutationOutbox getInstance(Context context) {
+        if (instance == null) {
+            instance = new MutationOutbox(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    public static String likeKey(String postId) {
+        return TYPE_LIKE + ":" + postId;
+    }
+
+    public static String postKey(String postId) {
+        return TYPE_POST + ":" + postId;
+    }
+
+    private final Context context;
+    private final LocalDatabase database;
+    private final FirebaseFirestore db = FirebaseFirestore.getInstance();
+    private final PostImageStore imageStore = new PostImageStore();
+    private final ConnectivityManager connectivityManager;
+    private final File imageDir;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<Listener> listeners = new ArrayList<>();
+    // Queue edits are quick; flushes wait on the network, so they get their own thread
+    private final ExecutorService storeExecutor = Executors.newSingleThreadExecutor();
+    private final ExecutorService flushExecutor = Executors.newSingleThreadExecutor();
+    private final Runnable retry = this::flush;
+    private long backoffMs = INITIAL_BACKOFF_MS; // Guarded by this
+
+    private MutationOutbox(Context context) {
+        this.context = context;
+        this.database = LocalDatabase.getInstance(context);
+        this.imageDir = new File(context.getFilesDir(), IMAGE_DIR);
+        this.connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+
+        // Rows a previous process had committed may or may not have reached Firestore's own
+        // write queue before it died. Queued first on the flush thread, so no flush of this
+        // process can mark a row in flight before.
+        flushExecutor.execute(() -> {
+            ContentValues values = new ContentValues();
+            values.put(LocalDatabase.COLUMN_IN_FLIGHT, UNCONFIRMED);
+            database.getWritableDatabase().update(LocalDatabase.TABLE_OUTBOX, values,
+                    LocalDatabase.COLUMN_IN_FLIGHT + " = " + IN_FLIGHT, null);
+        });
+
+        connectivityManager.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onAvailable(@NonNull Network network) {
+                synchronized (MutationOutbox.this) {
+                    backoffMs = INITIAL_BACKOFF_MS;
+                }
+                mainHandler.removeCallbacks(retry);
+                flush();
+            }
+        });
+    }
+
+    public void addListener(Listener listener) {
+        mainHandler.post(() -> listeners.add(listener));
+    }
+
+    public void removeListener(Listener listener) {
+        mainHandler.post(() -> listeners.remove(listener));
+    }
+
+    /**
+     * Queue the user's like state for a post. A queued opposite state is cancelled instead.
+     */
+    public void enqueueLike(String postId, String userId, boolean liked) {
+        String key = likeKey(postId);
+        storeExecutor.execute(() -> {
+            SQLiteDatabase sqlite = database.getWritableDatabase();
+            boolean cancelled = false;
+            sqlite.beginTransaction();
+            try {
+                Row queued = findQueued(sqlite, key);
+                if (queued != null && queued.data.optBoolean("from") == liked) {
+                    // Back to where the server is: nothing to send
+                    sqlite.delete(LocalDatabase.TABLE_OUTBOX, LocalDatabase.COLUMN_ID + " = ?",
+                            new String[]{String.valueOf(queued.id)});
+                    cancelled = true;
+                } else if (queued != null) {
+                    queued.data.put("to", liked);
+                    updateData(sqlite, queued);
+                } else {
+                    JSONObject data = new JSONObject();
+                    data.put("postId", postId);
+                    data.put("userId", userId);
+                    data.put("from", !liked);
+                    data.put("to", liked);
+                    insert(sqlite, key, TYPE_LIKE, data);
+                }
+                sqlite.setTransactionSuccessful();
+            } catch (JSONException e) {
+                Log.e(TAG, "Error queueing like: " + e.getMessage());
+            } finally {
+                sqlite.endTransaction();
+            }
+            if (cancelled && countRows(key) == 0) {
+                notifySettled(key, null);
+            } else {
+                flush();
+            }
+        });
+    }
+
+    /**
+     * Queue a new post. The image bytes, if any, are kept in files until it is sent.
+     */
+    public void enqueuePost(String postId, Map<String, Object> postData, @Nullable ImageVariants variants) {
+        String key = postKey(postId);
+        storeExecutor.execute(() -> {
+            try {
+                JSONObject data = new JSONObject();
+                data.put("postId", postId);
+                data.put("post", new JSONObject(postData));
+                JSONArray images = new JSONArray();
+                if (variants != null) {
+                    writeImage(variants.fullImageId, variants.fullBytes);
+                    images.put(variants.fullImageId);
+                    if (variants.mediumImageId != null) {
+                        writeImage(variants.mediumImageId, variants.mediumBytes);
+                        images.put(variants.mediumImageId);
+                    }
+                }
+                data.put("images", images);
+                insert(database.getWritableDatabase(), key, TYPE_POST, data);
+            } catch (JSONException | IOException e) {
+                Log.e(TAG, "Error queueing post: " + e.getMessage());
+                notifySettled(key, e);
+                return;
+            }
+            // The worker sends it even if this process dies first
+            PostUploadWorker.schedule(context);
+        });
+    }
+
+    /**
+     * Posts that are queued but not written yet, for showing in the feed meanwhile
+     */
+    public void loadPendingPosts(PendingPostsCallback callback) {
+        storeExecutor.execute(() -> {
+            List<Post> posts = new ArrayList<>();
+            for (Row row : loadRows(TYPE_POST, null)) {
+                JSONObject postData = row.data.optJSONObject("post");
+                Post post = postData != null ? PostStore.fromJson(postData.toString()) : null;
+                if (post != null) {
+                    post.setPostId(row.data.optString("postId"));
+                    posts.add(post);
+                }
+            }
+            mainHandler.post(() -> callback.onLoaded(posts));
+        });
+    }
+
+    /**
+     * Number of posts waiting to be written. Reads the database on the calling thread.
+     */
+    public int countPendingPosts() {
+        return loadRows(TYPE_POST, null).size();
+    }
+
+    /**
+     * The bytes of an image whose post is still queued, or null. Reads the file on the
+     * calling thread.
+     */
+    @Nullable
+    public byte[] readQueuedImage(String imageId) {
+        File file = imageFile(imageId);
+        if (!file.exists()) return null;
+        try {
+            return readImage(file);
+        } catch (IOException e) {
+            // Deleted because the post was just sent
+            return null;
+        }
+    }
+
+    /**
+     * Send everything queued, if online. Safe to call at any time.
+     */
+    public void flush() {
+        flushExecutor.execute(() -> flushQueued(null));
+    }
+
+    /**
+     * Send everything queued and wait for it, for callers on a background thread.
+     * Returns false if something is left for a later retry.
+     */
+    public boolean drain(@Nullable Progress progress) throws InterruptedException {
+        try {
+            return flushExecutor.submit(() -> flushQueued(progress)).get();
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Error draining outbox: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Runs on the flush thread. Returns false if rows are left for a retry.
+    private boolean flushQueued(@Nullable Progress progress) {
+        if (!isOnline()) return false;
+
+        boolean confirmed = confirmUnconfirmed();
+        List<Row> rows = new ArrayList<>();
+        for (Row row : loadRows(null, QUEUED)) {
+            if (!TYPE_LIKE.equals(row.type)) {
+                rows.add(row);
+            } else if (!flushSingle(row)) {
+                return false;
+            }
+        }
+        int next = 0;
+        while (next < rows.size()) {
+            List<Row> candidates = new ArrayList<>();
+            int writes = 0;
+            long bytes = 0;
+            for (; next < rows.size(); next++) {
+                Row row = rows.get(next);
+                int rowWrites = writesFor(row);
+                long rowBytes = bytesFor(row);
+                if (!candidates.isEmpty() && (writes + rowWrites > MAX_BATCH_WRITES
+                        || bytes + rowBytes > MAX_BATCH_BYTES)) {
+                    break;
+                }
+                candidates.add(row);
+                writes += rowWrites;
+                bytes += rowBytes;
+            }
+
+            List<Row> included = claim(candidates);
+            if (included.isEmpty()) continue;
+            WriteBatch batch = db.batch();
+            for (Row row : included) {
+                addToBatch(batch, row);
+            }
+            Task<Void> commit = batch.commit();
+            try {
+                Tasks.await(commit, COMMIT_TIMEOUT_S, TimeUnit.SECONDS);
+                completed(included, null);
+                reportPosts(included, progress);
+                synchronized (this) {
+                    backoffMs = INITIAL_BACKOFF_MS;
+                }
+            } catch (TimeoutException | InterruptedException e) {
+                finishLater(commit, included);
+                return false;
+            } catch (ExecutionException e) {
+                Exception cause = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                if (isRetryable(cause)) {
+                    requeue(included);
+                    scheduleRetry();
+                    return false;
+                }
+                // One bad mutation fails the whole batch; send them one at a time instead
+                requeue(included);
+                for (Row row : included) {
+                    if (!flushSingle(row)) return false;
+                    reportPosts(Collections.singletonList(row), progress);
+                }
+            }
+        }
+        return confirmed;
+    }
+
+    // Firestore keeps a commit pending for as long as it takes, across network loss too, and
+    // a slow transaction may still finish. The rows stay in flight until it does, so they
+    // are never sent a second time.
+    private void finishLater(Task<Void> commit, List<Row> rows) {
+        Log.d(TAG, "Commit still pending, leaving " + rows.size() + " rows in flight");
+        commit.addOnCompleteListener(flushExecutor, task -> {
+            if (task.isSuccessful()) {
+                completed(rows, null);
+            } else {
+                // Nothing was written; the next flush sends them again
+                requeue(rows);
+                scheduleRetry();
+            }
+        });
+    }
+
+    // Settle the rows an earlier process left in flight: posts whose write is in Firestore
+    // (in its cache, which holds its pending writes, or on the server) complete, the rest
+    // are queued again. Likes are always queued again, sending one twice changes nothing.
+    // Returns false if some could not be checked yet.
+    private boolean confirmUnconfirmed() {
+        boolean confirmed = true;
+        for (Row row : loadRows(null, UNCONFIRMED)) {
+            List<Row> single = Collections.singletonList(row);
+            Boolean written = TYPE_LIKE.equals(row.type) ? Boolean.FALSE : isWritten(row);
+            if (written == null) {
+                confirmed = false;
+            } else if (written) {
+                completed(single, null);
+            } else {
+                requeue(single);
+            }
+        }
+        return confirmed;
+    }
+
+    // Whether the post row's write is visible in Firestore, or null if that cannot be told now
+    @Nullable
+    private Boolean isWritten(Row row) {
+        DocumentReference ref = db.collection("posts").document(row.data.optString("postId"));
+        try {
+            DocumentSnapshot cached = Tasks.await(ref.get(Source.CACHE), LOOKUP_TIMEOUT_S, TimeUnit.SECONDS);
+            if (cached.exists()) return true;
+        } catch (ExecutionException | InterruptedException | TimeoutException e) {
+            // Not cached, ask the server
+        }
+        try {
+            DocumentSnapshot server = Tasks.await(ref.get(Source.SERVER), LOOKUP_TIMEOUT_S, TimeUnit.SECONDS);
+            return server.exists();
+        } catch (ExecutionException | InterruptedException | TimeoutException e) {
+            Log.w(TAG, "Cannot confirm " + row.key + " yet: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void reportPosts(List<Row> rows, @Nullable Progress progress) {
+        if (progress == null) return;
+        int posts = 0;
+        for (Row row : rows) {
+            if (TYPE_POST.equals(row.type)) posts++;
+        }
+        if (posts > 0) {
+            progress.onPostsSent(posts);
+        }
+    }
+
+    // Returns false if the flush should stop and retry later
+    private boolean flushSingle(Row queued) {
+        List<Row> single = claim(Collections.singletonList(queued));
+        // Cancelled since it was loaded
+        if (single.isEmpty()) return true;
+        Row row = single.get(0);
+        Task<Void> commit;
+        if (TYPE_LIKE.equals(row.type)) {
+            commit = likeTransaction(row);
+        } else {
+            WriteBatch batch = db.batch();
+            addToBatch(batch, row);
+            commit = batch.commit();
+        }
+        try {
+            Tasks.await(commit, COMMIT_TIMEOUT_S, TimeUnit.SECONDS);
+            completed(single, null);
+            return true;
+        } catch (TimeoutException | InterruptedException e) {
+            finishLater(commit, single);
+            return false;
+        } catch (ExecutionException e) {
+            Exception cause = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            if (isRetryable(cause)) {
+                requeue(single);
+                scheduleRetry();
+                return false;
+            }
+            Log.e(TAG, "Dropping " + row.key + ": " + cause.getMessage());
+            completed(single, cause);
+            return true;
+        }
+    }
+
+    // The like records and the counter change together, and the counter only moves if the
+    // user's like actually changes. A state queued from a stale LikeIndex, one another device
+    // already wrote, or a like still kept in the post's legacy likedBy map is not counted twice.
+    private Task<Void> likeTransaction(Row row) {
+        String postId = row.data.optString("postId");
+        String userId = row.data.optString("userId");
+        boolean liked = row.data.optBoolean("to");
+        DocumentReference postRef = db.collection("posts").document(postId);
+        DocumentReference likeRef = LikeIndex.likeRef(db, postId, userId);
+        DocumentReference indexRef = LikeIndex.indexRef(db, userId, postId);
+        FieldPath legacyLike = FieldPath.of("likedBy", userId);
+        return db.runTransaction(transaction -> {
+            DocumentSnapshot post = transaction.get(postRef);
+            if (!post.exists()) return null;
+            DocumentSnapshot record = transaction.get(likeRef);
+            boolean legacy = Boolean.TRUE.equals(post.get(legacyLike));
+            boolean wasLiked = record.exists() || legacy;
+
+            if (liked) {
+                Map<String, Object> data = new HashMap<>();
+                data.put("userId", userId);
+                data.put("postId", postId);
+                data.put("createdAt", System.currentTimeMillis());
+                transaction.set(likeRef, data);
+                transaction.set(indexRef, data);
+            } else {
+                transaction.delete(likeRef);
+                transaction.delete(indexRef);
+            }
+            if (legacy) {
+                // Moved into the like record, or undone
+                transaction.update(postRef, legacyLike, FieldValue.delete());
+            }
+            if (wasLiked != liked) {
+                PostCounters.increment(transaction, db, postId, PostCounters.LIKE_COUNT, liked ? 1 : -1);
+            }
+            return null;
+        });
+    }
+
+    private void addToBatch(WriteBatch batch, Row row) {
+        if (TYPE_POST.equals(row.type)) {
+            List<String> imageIds = imageIds(row);
+            Set<String> stored = findStored(imageIds);
+            for (String imageId : imageIds) {
+                File file = imageFile(imageId);
+                if (stored.contains(imageId) || !file.exists()) continue;
+                try {
+                    imageStore.addToBatch(batch, imageId, readImage(file));
+                } catch (IOException e) {
+                    Log.e(TAG, "Error reading queued image " + imageId + ": " + e.getMessage());
+                }
+            }
+            DocumentReference postRef = db.collection("posts").document(row.data.optString("postId"));
+            batch.set(postRef, toMap(row.data.optJSONObject("post")));
+        }
+    }
+
+    private Set<String> findStored(List<String> imageIds) {
+        try {
+            return Tasks.await(imageStore.findStored(imageIds), LOOKUP_TIMEOUT_S, TimeUnit.SECONDS);
+        } catch (ExecutionException | InterruptedException | TimeoutException e) {
+            // Write the bytes; an id names one photo at one size and quality, so at worst an
+            // equivalent encoding is replaced
+            return new HashSet<>();
+        }
+    }
+
+    // Delete committed or dropped rows and tell listeners about keys with nothing left
+    private void completed(List<Row> rows, @Nullable Exception error) {
+        SQLiteDatabase sqlite = database.getWritableDatabase();
+        for (Row row : rows) {
+            sqlite.delete(LocalDatabase.TABLE_OUTBOX, LocalDatabase.COLUMN_ID + " = ?",
+                    new String[]{String.valueOf(row.id)});
+            if (TYPE_POST.equals(row.type)) {
+                List<String> imageIds = imageIds(row);
+                if (error == null) {
+                    PostImageStore.markStored(imageIds);
+                }
+                for (String imageId : imageIds) {
+                    imageFile(imageId).delete();
+                }
+            }
+        }
+        for (Row row : rows) {
+            if (countRows(row.key) == 0) {
+                notifySettled(row.key, error);
+            }
+        }
+    }
+
+    private void scheduleRetry() {
+        long delay;
+        synchronized (this) {
+            delay = backoffMs;
+            backoffMs = Math.min(MAX_BACKOFF_MS, backoffMs * 2);
+        }
+        Log.d(TAG, "Retrying in " + delay + "ms");
+        mainHandler.removeCallbacks(retry);
+        mainHandler.postDelayed(retry, delay);
+    }
+
+    private static boolean isRetryable(Exception e) {
+        if (!(e instanceof FirebaseFirestoreException)) return true;
+        switch (((FirebaseFirestoreException) e).getCode()) {
+            case PERMISSION_DENIED:
+            case NOT_FOUND:
+            case INVALID_ARGUMENT:
+            case FAILED_PRECONDITION:
+            case ALREADY_EXISTS:
+            case OUT_OF_RANGE:
+            case UNIMPLEMENTED:
+            case UNAUTHENTICATED:
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    public boolean isOnline() {
+        NetworkCapabilities capabilities =
+                connectivityManager.getNetworkCapabilities(connectivityManager.getActiveNetwork());
+        return capabilities != null
+                && capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET);
+    }
+
+    private void notifySettled(String key, @Nullable Exception error) {
+        mainHandler.post(() -> {
+            for (Listener listener : new ArrayList<>(listeners)) {
+                listener.onSettled(key, error);
+            }
+        });
+    }
+
+    private static int writesFor(Row row) {
+        return 1 + imageIds(row).size();
+    }
+
+    private long bytesFor(Row row) {
+        long bytes = row.data.toString().length();
+        if (TYPE_POST.equals(row.type)) {
+            for (String imageId : imageIds(row)) {
+                bytes += imageFile(imageId).length();
+            }
+        }
+        return bytes;
+    }
+
+    private static List<String> imageIds(Row row) {
+        List<String> imageIds = new ArrayList<>();
+        JSONArray images = row.data.optJSONArray("images");
+        if (images != null) {
+            for (int i = 0; i < images.length(); i++) {
+                imageIds.add(images.optString(i));
+            }
+        }
+        return imageIds;
+    }
+
+    private static Map<String, Object> toMap(JSONObject json) {
+        Map<String, Object> map = new HashMap<>();
+        if (json == null) return map;
+        Iterator<String> keys = json.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            Object value = json.opt(key);
+            if (value != null && value != JSONObject.NULL) {
+                map.put(key, value);
+            }
+        }
+        return map;
+    }
+
+    private File imageFile(String imageId) {
+        return new File(imageDir, imageId + ".jpg");
+    }
+
+    private void writeImage(String imageId, byte[] bytes) throws IOException {
+        File file = imageFile(imageId);
+        if (file.exists()) return;
+        if (!imageDir.exists() && !imageDir.mkdirs()) {
+            throw new IOException("Cannot create " + imageDir);
+        }
+        try (FileOutputStream output = new FileOutputStream(file)) {
+            output.write(bytes);
+        }
+    }
+
+    private static byte[] readImage(File file) throws IOException {
+        try (FileInputStream input = new FileInputStream(file)) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream((int) file.length());
+            byte[] buffer = new byte[16 * 1024];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            return output.toByteArray();
+        }
+    }
+
+    // Rows in queue order, optionally only of one type and only in one in_flight state
+    private List<Row> loadRows(@Nullable String type, @Nullable Integer inFlight) {
+        List<String> conditions = new ArrayList<>();
+        List<String> args = new ArrayList<>();
+        if (type != null) {
+            conditions.add(LocalDatabase.COLUMN_TYPE + " = ?");
+            args.add(type);
+        }
+        if (inFlight != null) {
+            conditions.add(LocalDatabase.COLUMN_IN_FLIGHT + " = ?");
+            args.add(String.valueOf(inFlight));
+        }
+        List<Row> rows = new ArrayList<>();
+        try (Cursor cursor = database.getReadableDatabase().query(LocalDatabase.TABLE_OUTBOX,
+                new String[]{LocalDatabase.COLUMN_ID, LocalDatabase.COLUMN_KEY,
+                        LocalDatabase.COLUMN_TYPE, LocalDatabase.COLUMN_DATA},
+                conditions.isEmpty() ? null : TextUtils.join(" AND ", conditions),
+                args.toArray(new String[0]), null, null,
+                LocalDatabase.COLUMN_ID + " ASC")) {
+            while (cursor.moveToNext()) {
+                Row row = readRow(cursor);
+                if (row != null) rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    @Nullable
+    private static Row findQueued(SQLiteDatabase sqlite, String key) {
+        try (Cursor cursor = sqlite.query(LocalDatabase.TABLE_OUTBOX,
+                new String[]{LocalDatabase.COLUMN_ID, LocalDatabase.COLUMN_KEY,
+                        LocalDatabase.COLUMN_TYPE, LocalDatabase.COLUMN_DATA},
+                LocalDatabase.COLUMN_KEY + " = ? AND " + LocalDatabase.COLUMN_IN_FLIGHT + " = " + QUEUED,
+                new String[]{key}, null, null, null, "1")) {
+            return cursor.moveToNext() ? readRow(cursor) : null;
+        }
+    }
+
+    @Nullable
+    private static Row readRow(Cursor cursor) {
+        try {
+            Row row = new Row();
+            row.id = cursor.getLong(0);
+            row.key = cursor.getString(1);
+            row.type = cursor.getString(2);
+            row.data = new JSONObject(cursor.getString(3));
+            return row;
+        } catch (JSONException e) {
+            Log.e(TAG, "Skipping unreadable outbox row: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private int countRows(String key) {
+        try (Cursor cursor = database.getReadableDatabase().rawQuery("SELECT COUNT(*) FROM "
+                + LocalDatabase.TABLE_OUTBOX + " WHERE " + LocalDatabase.COLUMN_KEY + " = ?",
+                new String[]{key})) {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        }
+    }
+
+    private static void insert(SQLiteDatabase sqlite, String key, String type, JSONObject data) {
+        ContentValues values = new ContentValues();
+        values.put(LocalDatabase.COLUMN_KEY, key);
+        values.put(LocalDatabase.COLUMN_TYPE, type);
+        values.put(LocalDatabase.COLUMN_DATA, data.toString());
+        values.put(LocalDatabase.COLUMN_CREATED_AT, System.currentTimeMillis());
+        sqlite.insert(LocalDatabase.TABLE_OUTBOX, null, values);
+    }
+
+    private static void updateData(SQLiteDatabase sqlite, Row row) {
+        ContentValues values = new ContentValues();
+        values.put(LocalDatabase.COLUMN_DATA, row.data.toString());
+        sqlite.update(LocalDatabase.TABLE_OUTBOX, values, LocalDatabase.COLUMN_ID + " = ?",
+                new String[]{String.valueOf(row.id)});
+    }
+
+    // Mark the rows in flight and return them as stored now, leaving out any that were
+    // cancelled or claimed meanwhile. The check and the mark share one transaction and come
+    // before any network I/O for the rows, so enqueueLike can only cancel a row that is
+    // still queued and a cancelled row is never sent.
+    private List<Row> claim(List<Row> rows) {
+        SQLiteDatabase sqlite = database.getWritableDatabase();
+        ContentValues values = new ContentValues();
+        values.put(LocalDatabase.COLUMN_IN_FLIGHT, IN_FLIGHT);
+        List<Row> claimed = new ArrayList<>();
+        sqlite.beginTransaction();
+        try {
+            for (Row row : rows) {
+                String[] id = {String.valueOf(row.id)};
+                if (sqlite.update(LocalDatabase.TABLE_OUTBOX, values, LocalDatabase.COLUMN_ID + " = ? AND "
+                        + LocalDatabase.COLUMN_IN_FLIGHT + " = " + QUEUED, id) == 0) {
+                    continue;
+                }
+                try (Cursor cursor = sqlite.query(LocalDatabase.TABLE_OUTBOX,
+                        new String[]{LocalDatabase.COLUMN_ID, LocalDatabase.COLUMN_KEY,
+                                LocalDatabase.COLUMN_TYPE, LocalDatabase.COLUMN_DATA},
+                        LocalDatabase.COLUMN_ID + " = ?", id, null, null, null)) {
+                    Row current = cursor.moveToNext() ? readRow(cursor) : null;
+                    if (current != null) claimed.add(current);
+                }
+            }
+            sqlite.setTransactionSuccessful();
+        } finally {
+            sqlite.endTransaction();
+        }
+        return claimed;
+    }
+
+    // Put rows in flight back in the queue; nothing of them was written
+    private void requeue(List<Row> rows) {
+        SQLiteDatabase sqlite = database.getWritableDatabase();
+        ContentValues values = new ContentValues();
+        values.put(LocalDatabase.COLUMN_IN_FLIGHT, QUEUED);
+        sqlite.beginTransaction();
+        try {
+            for (Row row : rows) {
+                sqlite.update(LocalDatabase.TABLE_OUTBOX, values, LocalDatabase.COLUMN_ID + " = ?",
+                        new String[]{String.valueOf(row.id)});
+            }
+            sqlite.setTransactionSuccessful();
+        } finally {
+            sqlite.endTransaction();
+        }
+    }
+}
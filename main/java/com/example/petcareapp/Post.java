@@ -5,8 +5,7 @@ import com.google.firebase.firestore.IgnoreExtraProperties;
 import com.google.firebase.firestore.ServerTimestamp;
 
 import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Objects;
 
 @IgnoreExtraProperties
 public class Post {
@@ -14,15 +13,21 @@ public class Post {
     private String userId;
     private String username;
     private String caption;
-    private String imageBase64;
+    private String imageBase64; // Legacy: full image inline, new posts use imageId
+    private String imageId; // Derived from the source image's SHA-256, document id in post_images
+    private String mediumImageId; // Feed-width variant, null for images that are already small
+    private int imageWidth = 0;
+    private int imageHeight = 0;
+    private String thumbnailBase64; // Tiny inline preview shown until the image is fetched
+    private String placeholderHash; // BlurHash, drawn before anything is fetched or decoded
     private String userProfileImage;
+    private boolean legacyImageOmitted; // Locally stored copy of a legacy post, see PostStore
 
     private Long timestamp; // Use Long instead of Date
 
     private int likeCount = 0;
     private int commentCount = 0;
-    private boolean hasImage = false;
-    private Map<String, Boolean> likedBy = new HashMap<>();
+    private Long countersFoldedAt; // When the counts above were last summed from PostCounters shards
 
     // REQUIRED: Empty constructor
     public Post() {}
@@ -34,8 +39,6 @@ public class Post {
         this.caption = caption;
         this.likeCount = 0;
         this.commentCount = 0;
-        this.hasImage = false;
-        this.likedBy = new HashMap<>();
     }
 
     // Getters and setters
@@ -55,9 +58,35 @@ public class Post {
     public String getImageBase64() { return imageBase64; }
     public void setImageBase64(String imageBase64) {
         this.imageBase64 = imageBase64;
-        this.hasImage = imageBase64 != null && !imageBase64.isEmpty();
     }
 
+    public String getImageId() { return imageId; }
+    public void setImageId(String imageId) {
+        this.imageId = imageId;
+    }
+
+    // The inline image was left out of the stored copy; PostImageLoader's disk cache may
+    // still have it under the post id
+    @Exclude
+    public boolean isLegacyImageOmitted() { return legacyImageOmitted; }
+    @Exclude
+    public void setLegacyImageOmitted(boolean legacyImageOmitted) { this.legacyImageOmitted = legacyImageOmitted; }
+
+    public String getMediumImageId() { return mediumImageId; }
+    public void setMediumImageId(String mediumImageId) { this.mediumImageId = mediumImageId; }
+
+    public int getImageWidth() { return imageWidth; }
+    public void setImageWidth(int imageWidth) { this.imageWidth = imageWidth; }
+
+    public int getImageHeight() { return imageHeight; }
+    public void setImageHeight(int imageHeight) { this.imageHeight = imageHeight; }
+
+    public String getThumbnailBase64() { return thumbnailBase64; }
+    public void setThumbnailBase64(String thumbnailBase64) { this.thumbnailBase64 = thumbnailBase64; }
+
+    public String getPlaceholderHash() { return placeholderHash; }
+    public void setPlaceholderHash(String placeholderHash) { this.placeholderHash = placeholderHash; }
+
     public String getUserProfileImage() { return userProfileImage; }
     public void setUserProfileImage(String userProfileImage) {
         this.userProfileImage = userProfileImage;
@@ -73,13 +102,81 @@ public class Post {
     public int getCommentCount() { return commentCount; }
     public void setCommentCount(int commentCount) { this.commentCount = commentCount; }
 
-    public boolean isHasImage() { return hasImage; }
-    public void setHasImage(boolean hasImage) { this.hasImage = hasImage; }
+    public Long getCountersFoldedAt() { return countersFoldedAt; }
+    public void setCountersFoldedAt(Long countersFoldedAt) { this.countersFoldedAt = countersFoldedAt; }
+
+    // Derived from the image fields, so it cannot disagree with them; the stored hasImage
+    // field is ignored when reading
+    @Exclude
+    public boolean isHasImage() {
+        return (imageId != null && !imageId.isEmpty())
+                || (imageBase64 != null && !imageBase64.isEmpty())
+                || legacyImageOmitted;
+    }
 
-    public Map<String, Boolean> getLikedBy() { return likedBy; }
-    public void setLikedBy(Map<String, Boolean> likedBy) { this.likedBy = likedBy; }
     @Exclude
     public Date getDate() {
         return timestamp != null ? new Date(timestamp) : null;
     }
+
+    /**
+     * A copy of this post with other counts. Lists share Post instances, so displayed
+     * counts change through copies rather than setters.
+     */
+    public Post withCounts(int likeCount, int commentCount) {
+        Post copy = new Post(userId, username, caption);
+        copy.postId = postId;
+        copy.imageBase64 = imageBase64;
+        copy.imageId = imageId;
+        copy.mediumImageId = mediumImageId;
+        copy.imageWidth = imageWidth;
+        copy.imageHeight = imageHeight;
+        copy.thumbnailBase64 = thumbnailBase64;
+        copy.placeholderHash = placeholderHash;
+        copy.userProfileImage = userProfileImage;
+        copy.legacyImageOmitted = legacyImageOmitted;
+        copy.timestamp = timestamp;
+        copy.countersFoldedAt = countersFoldedAt;
+        copy.likeCount = likeCount;
+        copy.commentCount = commentCount;
+        return copy;
+    }
+
+    // Hash of everything a feed row displays; PostAdapter uses it as a quick check before sameContent()
+    public int contentHash() {
+        return Objects.hash(userId, username, caption, userProfileImage, timestamp,
+                likeCount, commentCount, imageHash());
+    }
+
+    // String caches its hash code, so this stays cheap for large legacy Base64 payloads
+    public int imageHash() {
+        return Objects.hash(imageId, mediumImageId, placeholderHash, imageBase64);
+    }
+
+    /**
+     * Whether a feed row would display both posts the same
+     */
+    public boolean sameContent(Post other) {
+        return Objects.equals(userId, other.userId)
+                && Objects.equals(username, other.username)
+                && Objects.equals(caption, other.caption)
+                && Objects.equals(userProfileImage, other.userProfileImage)
+                && Objects.equals(timestamp, other.timestamp)
+                && likeCount == other.likeCount
+                && commentCount == other.commentCount
+                && sameImage(other);
+    }
+
+    /**
+     * Whether both posts show the same image. Hashes are compared first, so a differing
+     * legacy Base64 payload is usually rejected without comparing its characters.
+     */
+    public boolean sameImage(Post other) {
+        return imageHash() == other.imageHash()
+                && Objects.equals(imageId, other.imageId)
+                && Objects.equals(mediumImageId, other.mediumImageId)
+                && Objects.equals(placeholderHash, other.placeholderHash)
+                && Objects.equals(imageBase64, other.imageBase64)
+                && legacyImageOmitted == other.legacyImageOmitted;
+    }
 }
\ No newline at end of file
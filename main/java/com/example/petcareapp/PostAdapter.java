@@ -6,6 +6,7 @@ import android.content.Intent;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.util.Base64;
+import android.util.LruCache;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -15,30 +16,80 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.bumptech.glide.Glide;
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.squareup.picasso.Picasso;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.Objects;
+
+public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder>
+        implements LikeCoalescer.Listener {
+    // Change payload for rows whose images are unchanged: only text, counts and buttons are rebound
+    private static final String PAYLOAD_DETAILS = "details";
+    // BlurHash placeholders are decoded this wide and scaled up by the view
+    private static final int PLACEHOLDER_WIDTH = 32;
+
+    private static final DiffUtil.ItemCallback<Post> DIFF_CALLBACK = new DiffUtil.ItemCallback<Post>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Post oldPost, @NonNull Post newPost) {
+            return Objects.equals(oldPost.getPostId(), newPost.getPostId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Post oldPost, @NonNull Post newPost) {
+            // The hash only rules out changes quickly; equal hashes are confirmed field by field
+            return oldPost.contentHash() == newPost.contentHash() && oldPost.sameContent(newPost);
+        }
+
+        @Override
+        public Object getChangePayload(@NonNull Post oldPost, @NonNull Post newPost) {
+            if (Objects.equals(oldPost.getUserId(), newPost.getUserId())
+                    && Objects.equals(oldPost.getUserProfileImage(), newPost.getUserProfileImage())
+                    && oldPost.sameImage(newPost)) {
+                return PAYLOAD_DETAILS;
+            }
+            return null;
+        }
+    };
 
-public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder> {
-    private List<Post> posts;
+    // Diffs are computed on a background thread; the current list is only swapped on the main thread
+    private final AsyncListDiffer<Post> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
     private Context context;
     private FirebaseFirestore db;
+    private PostImageLoader imageLoader;
+    private MemoryBudget memoryBudget;
+    private UserProfileResolver profileResolver;
+    private int measuredImageWidth = 0;
+    // Decoded placeholders are a few KB each, keep the recent ones
+    private final LruCache<String, Bitmap> placeholderCache = new LruCache<>(100);
     private String currentUserId;
+    private LikeIndex likeIndex;
+    private LikeCoalescer likeCoalescer;
+    private PostCounters counters;
+    // Last list handed to the differ, which may still be diffing it
+    private List<Post> submitted = new ArrayList<>();
+    // Commit callback of a submission that a later one may supersede before it commits
+    private Runnable pendingCommit;
 
     public PostAdapter(List<Post> posts, Context context) {
-        this.posts = posts;
         this.context = context;
         this.db = FirebaseFirestore.getInstance();
+        this.imageLoader = PostImageLoader.getInstance(context);
+        this.memoryBudget = MemoryBudget.getInstance(context);
+        this.profileResolver = UserProfileResolver.getInstance();
         this.currentUserId = FirebaseAuth.getInstance().getCurrentUser().getUid();
+        this.likeIndex = LikeIndex.getInstance(currentUserId);
+        this.likeCoalescer = new LikeCoalescer(context, currentUserId, this);
+        this.counters = PostCounters.getInstance();
+        submit(withCounters(posts), null);
+        loadLikeStates(posts);
     }
 
     @NonNull
@@ -48,69 +99,184 @@ public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder
         return new PostViewHolder(view);
     }
 
+    @Override
+    public void onBindViewHolder(@NonNull PostViewHolder holder, int position,
+                                 @NonNull List<Object> payloads) {
+        if (payloads.contains(PAYLOAD_DETAILS)) {
+            // Image is unchanged, keep the already decoded bitmap
+            bindDetails(holder, getPost(position));
+        } else {
+            onBindViewHolder(holder, position);
+        }
+    }
+
     @Override
     public void onBindViewHolder(@NonNull PostViewHolder holder, int position) {
-        Post post = posts.get(position);
-        holder.postImageView.setScaleType(ImageView.ScaleType.CENTER_INSIDE);
-        holder.postImageView.setAdjustViewBounds(true);
+        Post post = getPost(position);
+        holder.postId = post.getPostId();
 
-        // Set basic info
-        holder.usernameTextView.setText(post.getUsername());
-        holder.captionTextView.setText(post.getCaption());
-        holder.likeCountTextView.setText(String.valueOf(post.getLikeCount()));
-        holder.commentCountTextView.setText(String.valueOf(post.getCommentCount()));
-        holder.timeTextView.setText(getTimeAgo(post.getTimestamp()));
+        bindDetails(holder, post);
+        loadCounters(post);
 
         // Load profile image
+        holder.cancelAvatarRequest();
+        releaseDisplayedAvatar(holder);
+        holder.profileImageView.setImageResource(R.drawable.ic_profile);
+        holder.avatarUserId = post.getUserId();
         if (post.getUserId() != null) {
-            loadUserProfile(post.getUserId(), holder.profileImageView);
+            loadUserProfile(post, holder);
+        }
+
+        // Drop any decode still running for the post this holder showed before
+        holder.cancelImageRequest();
+        releaseDisplayedImage(holder);
+
+        if (post.isHasImage()) {
+            // Placeholder while decoding, drawn synchronously so the row is complete on first frame
+            showPostImage(holder, post, placeholderFor(post));
+
+            // Under memory pressure decode smaller, or keep just the placeholder
+            int decodeWidth = decodeWidth(post, targetImageWidth(holder));
+            if (decodeWidth == 0) return;
+
+            holder.imageRequest = imageLoader.load(post, decodeWidth,
+                    PostImageLoader.PRIORITY_VISIBLE, bitmap -> {
+                        releaseDisplayedImage(holder);
+                        holder.displayedBitmap = bitmap;
+                        showPostImage(holder, post, bitmap);
+                    });
         } else {
-            holder.profileImageView.setImageResource(R.drawable.ic_profile);
+            holder.postImageView.setImageDrawable(null);
+            holder.postImageView.setVisibility(View.GONE);
+        }
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull PostViewHolder holder) {
+        super.onViewRecycled(holder);
+        holder.cancelImageRequest();
+        holder.postImageView.setImageDrawable(null);
+        releaseDisplayedImage(holder);
+        holder.cancelAvatarRequest();
+        holder.avatarUserId = null;
+        holder.profileImageView.setImageResource(R.drawable.ic_profile);
+        releaseDisplayedAvatar(holder);
+    }
+
+    // Hand the loader's bitmap back so its memory can be reused once it leaves the cache
+    private void releaseDisplayedImage(PostViewHolder holder) {
+        if (holder.displayedBitmap != null) {
+            imageLoader.release(holder.displayedBitmap);
+            holder.displayedBitmap = null;
         }
-        // Before loading image in PostAdapter:
-        Runtime runtime = Runtime.getRuntime();
-        long usedMem = runtime.totalMemory() - runtime.freeMemory();
-        long maxMem = runtime.maxMemory();
-        long availableMem = maxMem - usedMem;
-
-        // Only load if we have enough memory (e.g., at least 50MB available)
-        if (availableMem > 50 * 1024 * 1024) { // 50MB
-            // Load image
+    }
+
+    /**
+     * Width the image of this post is decoded at when its row is bound, or 0 if it would
+     * not be decoded. Prefetching at this width fills the cache entry the row will look up.
+     */
+    public int imageDecodeWidth(Post post) {
+        if (!post.isHasImage()) return 0;
+        int targetWidth = measuredImageWidth > 0 ? measuredImageWidth
+                : context.getResources().getDisplayMetrics().widthPixels;
+        return decodeWidth(post, targetWidth);
+    }
+
+    private int decodeWidth(Post post, int targetWidth) {
+        float aspectRatio = post.getImageWidth() > 0
+                ? (float) post.getImageHeight() / post.getImageWidth() : 1f;
+        return memoryBudget.affordableWidth(targetWidth, aspectRatio);
+    }
+
+    private void releaseDisplayedAvatar(PostViewHolder holder) {
+        if (holder.displayedAvatar != null) {
+            imageLoader.release(holder.displayedAvatar);
+            holder.displayedAvatar = null;
+        }
+    }
+
+    // Decode to the measured width of post_image; every row has the same width, so it is
+    // remembered and only the first rows, bound before any layout, use the screen width
+    private int targetImageWidth(PostViewHolder holder) {
+        int width = holder.postImageView.getWidth();
+        if (width > 0) {
+            measuredImageWidth = width;
+        }
+        return measuredImageWidth > 0 ? measuredImageWidth
+                : context.getResources().getDisplayMetrics().widthPixels;
+    }
+
+    private void showPostImage(PostViewHolder holder, Post post, Bitmap bitmap) {
+        ImageView imageView = holder.postImageView;
+        if (bitmap == null) {
+            imageView.setImageResource(R.drawable.post_background);
         } else {
-            // Skip image or load placeholder
-            holder.postImageView.setImageResource(R.drawable.post_background);
+            imageView.setImageBitmap(bitmap);
         }
+        imageView.setVisibility(View.VISIBLE);
+
+        ViewGroup.LayoutParams params = imageView.getLayoutParams();
+        params.width = ViewGroup.LayoutParams.MATCH_PARENT;
+        if (post.getImageWidth() > 0 && post.getImageHeight() > 0) {
+            // Known size: reserve the final height now so the row does not jump when the
+            // image replaces its placeholder
+            int height = Math.round((float) targetImageWidth(holder) * post.getImageHeight() / post.getImageWidth());
+            params.height = Math.min(height, imageView.getMaxHeight());
+            imageView.setAdjustViewBounds(false);
+            imageView.setScaleType(ImageView.ScaleType.FIT_CENTER);
+        } else {
+            // Legacy posts without dimensions size to the bitmap
+            params.height = ViewGroup.LayoutParams.WRAP_CONTENT;
+            imageView.setAdjustViewBounds(true);
+            imageView.setScaleType(ImageView.ScaleType.CENTER_INSIDE);
+        }
+        imageView.setLayoutParams(params);
+    }
 
-        // Load post image from Base64
-        // Then when setting the image:
-        if (post.isHasImage() && post.getImageBase64() != null && !post.getImageBase64().isEmpty()) {
-            try {
-                // Decode Base64 to Bitmap
-                byte[] decodedString = android.util.Base64.decode(post.getImageBase64(), android.util.Base64.DEFAULT);
-                android.graphics.Bitmap decodedByte = android.graphics.BitmapFactory.decodeByteArray(
-                        decodedString, 0, decodedString.length);
-
-                holder.postImageView.setImageBitmap(decodedByte);
-                holder.postImageView.setVisibility(View.VISIBLE);
-
-                // Remove any fixed height constraints
-                ViewGroup.LayoutParams params = holder.postImageView.getLayoutParams();
-                params.height = ViewGroup.LayoutParams.WRAP_CONTENT;
-                params.width = ViewGroup.LayoutParams.MATCH_PARENT;
-                holder.postImageView.setLayoutParams(params);
-
-            } catch (Exception e) {
-                e.printStackTrace();
-                holder.postImageView.setVisibility(View.GONE);
+    // BlurHash if the post has one, else the inline thumbnail, else nothing
+    private Bitmap placeholderFor(Post post) {
+        String hash = post.getPlaceholderHash();
+        if (hash == null || hash.isEmpty()) {
+            return decodeBase64(post.getThumbnailBase64());
+        }
+        Bitmap placeholder = placeholderCache.get(hash);
+        if (placeholder == null) {
+            float aspectRatio = post.getImageWidth() > 0
+                    ? (float) post.getImageHeight() / post.getImageWidth() : 1f;
+            int height = Math.max(1, Math.min(PLACEHOLDER_WIDTH * 4, Math.round(PLACEHOLDER_WIDTH * aspectRatio)));
+            placeholder = BlurHash.decode(hash, PLACEHOLDER_WIDTH, height);
+            if (placeholder == null) {
+                return decodeBase64(post.getThumbnailBase64());
             }
-        } else {
-            holder.postImageView.setVisibility(View.GONE);
+            placeholderCache.put(hash, placeholder);
         }
+        return placeholder;
+    }
+
+    // Only used for the tiny inline thumbnail; full images go through PostImageLoader
+    private Bitmap decodeBase64(String base64) {
+        if (base64 == null || base64.isEmpty()) return null;
+        try {
+            byte[] bytes = Base64.decode(base64, Base64.DEFAULT);
+            return BitmapFactory.decodeByteArray(bytes, 0, bytes.length);
+        } catch (IllegalArgumentException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Bind everything except the images: text, counts and buttons
+     */
+    private void bindDetails(PostViewHolder holder, Post post) {
+        holder.usernameTextView.setText(post.getUsername());
+        holder.captionTextView.setText(post.getCaption());
+        holder.likeCountTextView.setText(String.valueOf(likeCoalescer.likeCount(post)));
+        holder.commentCountTextView.setText(String.valueOf(post.getCommentCount()));
+        holder.timeTextView.setText(getTimeAgo(post.getTimestamp()));
 
-        // Check if current user liked the post
-        boolean isLiked = post.getLikedBy() != null &&
-                post.getLikedBy().containsKey(currentUserId);
-        setLikeButton(holder.likeButton, isLiked);
+        // Check if current user liked the post, including taps not yet written
+        setLikeButton(holder.likeButton, likeCoalescer.isLiked(post));
 
         // Like button click listener
         holder.likeButton.setOnClickListener(v -> {
@@ -122,79 +288,82 @@ public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder
             openComments(post);
         });
     }
-    // Add this helper method in PostAdapter:
-    private int calculateInSampleSize(BitmapFactory.Options options, int reqWidth, int reqHeight) {
-        final int height = options.outHeight;
-        final int width = options.outWidth;
-        int inSampleSize = 1;
-
-        if (height > reqHeight || width > reqWidth) {
-            final int halfHeight = height / 2;
-            final int halfWidth = width / 2;
-
-            while ((halfHeight / inSampleSize) >= reqHeight
-                    && (halfWidth / inSampleSize) >= reqWidth) {
-                inSampleSize *= 2;
-            }
+    private void loadUserProfile(Post post, PostViewHolder holder) {
+        // New posts carry the author's avatar; only older ones need the profile lookup
+        if (post.getUserProfileImage() != null) {
+            loadAvatar(post.getUserProfileImage(), holder);
+            return;
         }
-        return inSampleSize;
-    }
-    private void loadUserProfile(String userId, ImageView profileImageView) {
-        db.collection("users").document(userId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        String profileImageUrl = documentSnapshot.getString("profileImageUrl");
-                        if (profileImageUrl != null && !profileImageUrl.equals("default")) {
-                            Picasso.get()
-                                    .load(profileImageUrl)
-                                    .placeholder(R.drawable.ic_profile)
-                                    .error(R.drawable.ic_profile)
-                                    .into(profileImageView);
-                        }
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    // Failed to load profile image, keep default
+        String userId = post.getUserId();
+        profileResolver.resolve(userId, user -> {
+            // The holder may have been rebound to another author meanwhile
+            if (user == null || !userId.equals(holder.avatarUserId)) return;
+            loadAvatar(user.getProfileImageUrl(), holder);
+        });
+    }
+
+    private void loadAvatar(String profileImageUrl, PostViewHolder holder) {
+        if (profileImageUrl == null || profileImageUrl.isEmpty() || profileImageUrl.equals("default")) return;
+        int size = holder.profileImageView.getLayoutParams().width;
+        holder.avatarRequest = imageLoader.loadUrl(profileImageUrl, size,
+                PostImageLoader.PRIORITY_VISIBLE, bitmap -> {
+                    releaseDisplayedAvatar(holder);
+                    holder.displayedAvatar = bitmap;
+                    holder.profileImageView.setImageBitmap(bitmap);
                 });
     }
 
     private void toggleLike(Post post, PostViewHolder holder) {
-        String postId = post.getPostId();
-        boolean isLiked = post.getLikedBy() != null &&
-                post.getLikedBy().containsKey(currentUserId);
+        // Optimistic; the write goes out once the taps settle
+        if (!likeCoalescer.toggle(post)) {
+            // Its like state failed to load or is still loading
+            loadLikeStates(Collections.singletonList(post));
+            Toast.makeText(context, "Loading likes, try again in a moment",
+                    Toast.LENGTH_SHORT).show();
+            return;
+        }
+        setLikeButton(holder.likeButton, likeCoalescer.isLiked(post));
+        holder.likeCountTextView.setText(String.valueOf(likeCoalescer.likeCount(post)));
+    }
 
-        Map<String, Object> updates = new HashMap<>();
+    @Override
+    public void onLikeSettled(String postId, int baseCount, int countDelta) {
+        reconcileLikeCount(postId, baseCount, countDelta);
+    }
 
-        if (isLiked) {
-            // Unlike
-            updates.put("likeCount", post.getLikeCount() - 1);
-            updates.put("likedBy." + currentUserId, FieldValue.delete());
-            setLikeButton(holder.likeButton, false);
-            post.setLikeCount(post.getLikeCount() - 1);
-            post.getLikedBy().remove(currentUserId);
-        } else {
-            // Like
-            updates.put("likeCount", post.getLikeCount() + 1);
-            updates.put("likedBy." + currentUserId, true);
-            setLikeButton(holder.likeButton, true);
-            post.setLikeCount(post.getLikeCount() + 1);
-            if (post.getLikedBy() == null) {
-                post.setLikedBy(new HashMap<>());
-            }
-            post.getLikedBy().put(currentUserId, true);
-        }
+    @Override
+    public void onLikeFailed(String postId, Exception e) {
+        Toast.makeText(context, "Failed to update like: " + e.getMessage(),
+                Toast.LENGTH_SHORT).show();
+        reconcileLikeCount(postId, 0, 0);
+    }
 
-        // Update in Firestore
-        db.collection("posts").document(postId)
-                .update(updates)
-                .addOnFailureListener(e -> {
-                    Toast.makeText(context, "Failed to update like: " + e.getMessage(),
-                            Toast.LENGTH_SHORT).show();
-                });
+    // Bring the loaded copy of the post in line with what was written. A copy whose count
+    // moved away from baseCount already came from a snapshot that includes the write, so
+    // only a copy still at baseCount is adjusted; the row is rebound either way.
+    private void reconcileLikeCount(String postId, int baseCount, int countDelta) {
+        counters.adjustLikes(postId, baseCount, countDelta);
+        Post post = findSubmitted(postId);
+        if (post == null) return;
+        if (countDelta != 0 && post.getLikeCount() == baseCount) {
+            // The diff rebinds the row
+            replacePost(post.withCounts(Math.max(0, baseCount + countDelta), post.getCommentCount()));
+            return;
+        }
+        int position = indexOfPost(postId);
+        if (position >= 0) {
+            notifyItemChanged(position, PAYLOAD_DETAILS);
+        }
+    }
 
-        // Update UI
-        holder.likeCountTextView.setText(String.valueOf(post.getLikeCount()));
+    private int indexOfPost(String postId) {
+        List<Post> posts = getPosts();
+        for (int i = 0; i < posts.size(); i++) {
+            if (Objects.equals(posts.get(i).getPostId(), postId)) {
+                return i;
+            }
+        }
+        return -1;
     }
 
     private void setLikeButton(ImageView likeButton, boolean isLiked) {
@@ -234,16 +403,108 @@ public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder
 
     @Override
     public int getItemCount() {
-        return posts.size();
+        return differ.getCurrentList().size();
+    }
+
+    public Post getPost(int position) {
+        return differ.getCurrentList().get(position);
+    }
+
+    public List<Post> getPosts() {
+        return differ.getCurrentList();
     }
 
     public void updatePosts(List<Post> newPosts) {
-        posts.clear();
-        posts.addAll(newPosts);
-        notifyDataSetChanged();
+        updatePosts(newPosts, null);
+    }
+
+    /**
+     * Diff the new list against the displayed one off the main thread and dispatch
+     * only the resulting inserts, moves, removals and changes.
+     * commitCallback runs on the main thread once the new list is displayed.
+     */
+    public void updatePosts(List<Post> newPosts, Runnable commitCallback) {
+        submit(withCounters(newPosts), commitCallback);
+        loadLikeStates(newPosts);
+    }
+
+    // Every list goes through here. A submission superseded before it commits never runs
+    // its callback, so the next one runs it along with its own.
+    private void submit(List<Post> posts, Runnable commitCallback) {
+        Runnable superseded = pendingCommit;
+        Runnable callback = superseded == null ? commitCallback
+                : commitCallback == null ? superseded
+                : () -> {
+                    superseded.run();
+                    commitCallback.run();
+                };
+        submitted = posts;
+        pendingCommit = callback;
+        differ.submitList(posts, () -> {
+            if (pendingCommit == callback) {
+                pendingCommit = null;
+            }
+            if (callback != null) {
+                callback.run();
+            }
+        });
+    }
+
+    // Show a changed copy of a post, on top of whatever was submitted last
+    private void replacePost(Post post) {
+        List<Post> posts = new ArrayList<>(submitted);
+        for (int i = 0; i < posts.size(); i++) {
+            if (Objects.equals(posts.get(i).getPostId(), post.getPostId())) {
+                posts.set(i, post);
+                submit(posts, null);
+                return;
+            }
+        }
+    }
+
+    private Post findSubmitted(String postId) {
+        for (Post post : submitted) {
+            if (Objects.equals(post.getPostId(), postId)) {
+                return post;
+            }
+        }
+        return null;
+    }
+
+    // Ask the like index about posts it has not seen; rows are rebound if any turn out liked
+    private void loadLikeStates(List<Post> posts) {
+        List<String> postIds = new ArrayList<>(posts.size());
+        for (Post post : posts) {
+            postIds.add(post.getPostId());
+        }
+        likeIndex.load(postIds, () -> notifyItemRangeChanged(0, getItemCount(), PAYLOAD_DETAILS));
+    }
+
+    // The posts' own counts are only folded in periodically, prefer the summed shards.
+    // Posts whose counts differ are copied; the caller's instances are left alone.
+    private List<Post> withCounters(List<Post> posts) {
+        List<Post> counted = new ArrayList<>(posts.size());
+        for (Post post : posts) {
+            counted.add(counters.apply(post));
+        }
+        return counted;
+    }
+
+    // Sum the shards of a row coming on screen; rows further down wait until they are bound
+    private void loadCounters(Post post) {
+        String postId = post.getPostId();
+        counters.load(post, () -> {
+            Post current = findSubmitted(postId);
+            if (current == null) return;
+            Post counted = counters.apply(current);
+            if (counted != current) {
+                replacePost(counted);
+            }
+        });
     }
 
     public static class PostViewHolder extends RecyclerView.ViewHolder {
+        String postId; // Post this row was last fully bound to
         TextView usernameTextView;
         ImageView profileImageView;
         TextView captionTextView;
@@ -253,6 +514,11 @@ public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder
         TextView timeTextView;
         ImageView likeButton;
         ImageView commentButton;
+        PostImageLoader.Request imageRequest;
+        Bitmap displayedBitmap; // Acquired from PostImageLoader, released on rebind or recycle
+        String avatarUserId;
+        PostImageLoader.Request avatarRequest;
+        Bitmap displayedAvatar; // Same as displayedBitmap, for the profile picture
 
         public PostViewHolder(@NonNull View itemView) {
             super(itemView);
@@ -267,5 +533,19 @@ public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder
             commentCountTextView = itemView.findViewById(R.id.comment_count);
             timeTextView = itemView.findViewById(R.id.time);
         }
+
+        void cancelImageRequest() {
+            if (imageRequest != null) {
+                imageRequest.cancel();
+                imageRequest = null;
+            }
+        }
+
+        void cancelAvatarRequest() {
+            if (avatarRequest != null) {
+                avatarRequest.cancel();
+                avatarRequest = null;
+            }
+        }
     }
 }
\ No newline at end of file
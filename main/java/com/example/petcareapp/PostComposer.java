@@ -0,0 +1,120 @@
+package com.example.petcareapp;
+
+import android.Manifest;
+import android.app.Activity;
+import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.widget.Toast;
+
+import androidx.annotation.Nullable;
+import androidx.core.app.ActivityCompat;
+import androidx.core.content.ContextCompat;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Turns a caption and an optional processed image into a queued post for both create-post
+ * screens: builds the post document, copies the author's avatar into it, hands it to the
+ * MutationOutbox and returns to the feed. Also asks for the notification permission the
+ * upload job reports its progress through.
+ */
+public class PostComposer {
+
+    public static final int PERMISSION_REQUEST_NOTIFICATIONS = 3;
+
+    private final Activity activity;
+    private final int exitAnimation;
+    private final FirebaseFirestore db = FirebaseFirestore.getInstance();
+    private final FirebaseAuth auth = FirebaseAuth.getInstance();
+    private final MutationOutbox outbox;
+
+    /**
+     * exitAnimation is played when the screen closes after sharing, 0 for none
+     */
+    public PostComposer(Activity activity, int exitAnimation) {
+        this.activity = activity;
+        this.exitAnimation = exitAnimation;
+        this.outbox = MutationOutbox.getInstance(activity);
+    }
+
+    // Uploads finish in the background and report progress in a notification
+    public void requestNotificationPermission() {
+        if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.TIRAMISU
+                && ContextCompat.checkSelfPermission(activity, Manifest.permission.POST_NOTIFICATIONS)
+                != PackageManager.PERMISSION_GRANTED) {
+            ActivityCompat.requestPermissions(activity,
+                    new String[]{Manifest.permission.POST_NOTIFICATIONS},
+                    PERMISSION_REQUEST_NOTIFICATIONS);
+        }
+    }
+
+    /**
+     * Queue the post and return to the feed once the author's avatar is resolved. Returns
+     * false, after telling the user why, if there is nothing to share; the caller should
+     * ignore further taps otherwise.
+     */
+    public boolean share(String caption, @Nullable ImageVariants imageVariants) {
+        if (caption.isEmpty()) {
+            Toast.makeText(activity, "Please enter a caption", Toast.LENGTH_SHORT).show();
+            return false;
+        }
+
+        FirebaseUser currentUser = auth.getCurrentUser();
+        if (currentUser == null) {
+            Toast.makeText(activity, "Please login to create posts", Toast.LENGTH_SHORT).show();
+            return false;
+        }
+
+        // Create post data
+        Map<String, Object> postData = new HashMap<>();
+        postData.put("userId", currentUser.getUid());
+        postData.put("username", currentUser.getDisplayName() != null ?
+                currentUser.getDisplayName() : "Anonymous");
+        postData.put("caption", caption);
+        postData.put("timestamp", System.currentTimeMillis());
+        PostCounters.putInitialFields(postData);
+
+        // Copy the author's avatar so the feed can draw it without reading their profile;
+        // if it cannot be resolved the feed falls back to the lookup
+        UserProfileResolver.getInstance().resolve(currentUser.getUid(), user -> {
+            if (user != null) {
+                postData.put("userProfileImage", AuthorAvatarUpdater.avatarOf(user));
+            }
+            writePost(postData, imageVariants);
+        });
+        return true;
+    }
+
+    private void writePost(Map<String, Object> postData, @Nullable ImageVariants imageVariants) {
+        String postId = db.collection("posts").document().getId();
+        postData.put("postId", postId);
+        if (imageVariants != null) {
+            PostImageStore.putVariantFields(imageVariants, postData);
+        } else {
+            postData.put("hasImage", false);
+        }
+
+        // The outbox and its background job take it from here, the feed shows it meanwhile
+        outbox.enqueuePost(postId, postData, imageVariants);
+        Toast.makeText(activity, outbox.isOnline() ? "Sharing your post..."
+                : "You're offline. Your post will be shared once you're back online.",
+                Toast.LENGTH_SHORT).show();
+        returnToFeed();
+    }
+
+    private void returnToFeed() {
+        Intent intent = new Intent(activity, HomeActivity.class);
+        // Return to the existing feed instead of stacking a new one on top
+        intent.addFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_SINGLE_TOP);
+        activity.startActivity(intent);
+        if (exitAnimation != 0) {
+            activity.overridePendingTransition(0, exitAnimation);
+        }
+        activity.finish();
+    }
+}
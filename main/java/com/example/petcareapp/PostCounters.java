@@ -0,0 +1,212 @@
+package com.example.petcareapp;
+
+import android.util.Log;
+
+import com.google.firebase.firestore.AggregateField;
+import com.google.firebase.firestore.AggregateQuerySnapshot;
+import com.google.firebase.firestore.AggregateSource;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Like and comment counts, spread over SHARD_COUNT documents in posts/{postId}/counter_shards
+ * so a popular post's document is not written on every like (Firestore throttles sustained
+ * writes to a single document). The true count is the sum of the shards, read with one
+ * aggregate query per post. The post's own likeCount/commentCount are a cached copy that
+ * the first reader after FOLD_INTERVAL_MS writes back, stamped with countersFoldedAt.
+ * Posts from before sharding have no countersFoldedAt; their counts are moved into a shard
+ * the first time they are read. Main thread only.
+ */
+public class PostCounters {
+
+    private static final String TAG = "PostCounters";
+
+    public static final String LIKE_COUNT = "likeCount";
+    public static final String COMMENT_COUNT = "commentCount";
+    public static final String FOLDED_AT = "countersFoldedAt";
+
+    private static final int SHARD_COUNT = 10;
+    private static final long REFRESH_MS = 30 * 1000;
+    private static final long FOLD_INTERVAL_MS = 10 * 60 * 1000;
+
+    private static final Random random = new Random();
+    private static PostCounters instance;
+
+    public static synchronized PostCounters getInstance() {
+        if (instance == null) {
+            instance = new PostCounters();
+        }
+        return instance;
+    }
+
+    private static CollectionReference shards(FirebaseFirestore db, String postId) {
+        return db.collection("posts").document(postId).collection("counter_shards");
+    }
+
+    /**
+     * Add delta to one of the post's counters (LIKE_COUNT or COMMENT_COUNT) as part of a
+     * transaction, which should have read whatever record the change depends on
+     */
+    public static void increment(Transaction transaction, FirebaseFirestore db, String postId, String field, long delta) {
+        DocumentReference shard = shards(db, postId).document(String.valueOf(random.nextInt(SHARD_COUNT)));
+        Map<String, Object> update = new HashMap<>();
+        update.put(field, FieldValue.increment(delta));
+        transaction.set(shard, update, SetOptions.merge());
+    }
+
+    /**
+     * Counter fields of a new post, which starts out with empty shards
+     */
+    public static void putInitialFields(Map<String, Object> postData) {
+        postData.put(LIKE_COUNT, 0);
+        postData.put(COMMENT_COUNT, 0);
+        postData.put(FOLDED_AT, System.currentTimeMillis());
+    }
+
+    private static final class Totals {
+        int likes;
+        int comments;
+        long loadedAt;
+    }
+
+    private final FirebaseFirestore db = FirebaseFirestore.getInstance();
+    private final Map<String, Totals> totals = new HashMap<>();
+    private final Set<String> loading = new HashSet<>();
+
+    private PostCounters() {}
+
+    /**
+     * The post with its cached counts replaced by the summed shards, if they were read more
+     * recently than the post last folded them. Returns the post itself if nothing changes,
+     * else a copy; the post is never modified.
+     */
+    public Post apply(Post post) {
+        Totals known = totals.get(post.getPostId());
+        if (known == null) return post;
+        Long foldedAt = post.getCountersFoldedAt();
+        if ((foldedAt == null || known.loadedAt > foldedAt)
+                && (post.getLikeCount() != known.likes || post.getCommentCount() != known.comments)) {
+            return post.withCounts(known.likes, known.comments);
+        }
+        return post;
+    }
+
+    /**
+     * Keep the summed like count in line with a change this client has written, which moved
+     * it from baseCount by delta. A total that no longer reads baseCount was summed after
+     * the write and already includes it.
+     */
+    public void adjustLikes(String postId, int baseCount, int delta) {
+        Totals known = totals.get(postId);
+        if (known != null && known.likes == baseCount) {
+            known.likes = Math.max(0, baseCount + delta);
+        }
+    }
+
+    /**
+     * Sum the post's shards if its total is missing or older than REFRESH_MS. Meant for
+     * posts coming on screen, so only what the user sees costs a query. onLoaded runs if
+     * the total differs from the post's cached counts.
+     */
+    public void load(Post post, Runnable onLoaded) {
+        String postId = post.getPostId();
+        if (postId == null || loading.contains(postId)) return;
+        Totals known = totals.get(postId);
+        if (known != null && System.currentTimeMillis() - known.loadedAt < REFRESH_MS) return;
+
+        loading.add(postId);
+        if (post.getCountersFoldedAt() == null) {
+            migrate(postId, () -> sum(postId, null, onLoaded));
+        } else {
+            sum(postId, post, onLoaded);
+        }
+    }
+
+    // Move the counts of a post from before sharding into its first shard, once
+    private void migrate(String postId, Runnable then) {
+        DocumentReference postRef = db.collection("posts").document(postId);
+        db.runTransaction(transaction -> {
+                    DocumentSnapshot snapshot = transaction.get(postRef);
+                    if (!snapshot.exists() || snapshot.contains(FOLDED_AT)) return null;
+
+                    Long likes = snapshot.getLong(LIKE_COUNT);
+                    Long comments = snapshot.getLong(COMMENT_COUNT);
+                    Map<String, Object> moved = new HashMap<>();
+                    moved.put(LIKE_COUNT, FieldValue.increment(likes != null ? likes : 0));
+                    moved.put(COMMENT_COUNT, FieldValue.increment(comments != null ? comments : 0));
+                    transaction.set(shards(db, postId).document("0"), moved, SetOptions.merge());
+                    // 0 marks the post as migrated and makes the next reader fold the totals
+                    transaction.update(postRef, FOLDED_AT, 0L);
+                    return null;
+                })
+                .addOnSuccessListener(unused -> then.run())
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error migrating counters of " + postId + ": " + e.getMessage());
+                    loading.remove(postId);
+                });
+    }
+
+    private void sum(String postId, Post post, Runnable onLoaded) {
+        AggregateField.SumAggregateField likes = AggregateField.sum(LIKE_COUNT);
+        AggregateField.SumAggregateField comments = AggregateField.sum(COMMENT_COUNT);
+        shards(db, postId).aggregate(likes, comments)
+                .get(AggregateSource.SERVER)
+                .addOnSuccessListener(snapshot -> {
+                    loading.remove(postId);
+                    Totals loaded = new Totals();
+                    loaded.likes = Math.max(0, toInt(snapshot, likes));
+                    loaded.comments = Math.max(0, toInt(snapshot, comments));
+                    loaded.loadedAt = System.currentTimeMillis();
+                    totals.put(postId, loaded);
+
+                    if (post == null || post.getLikeCount() != loaded.likes
+                            || post.getCommentCount() != loaded.comments) {
+                        onLoaded.run();
+                    }
+                    Long foldedAt = post != null ? post.getCountersFoldedAt() : null;
+                    if (foldedAt == null || loaded.loadedAt - foldedAt > FOLD_INTERVAL_MS) {
+                        fold(postId, loaded);
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error summing counters of " + postId + ": " + e.getMessage());
+                    loading.remove(postId);
+                });
+    }
+
+    // Write the totals back to the post. The transaction makes every reader but the first
+    // within FOLD_INTERVAL_MS skip the write instead of contending for the document.
+    private void fold(String postId, Totals loaded) {
+        DocumentReference postRef = db.collection("posts").document(postId);
+        db.runTransaction(transaction -> {
+            DocumentSnapshot snapshot = transaction.get(postRef);
+            Long foldedAt = snapshot.getLong(FOLDED_AT);
+            if (!snapshot.exists() || foldedAt == null
+                    || loaded.loadedAt - foldedAt <= FOLD_INTERVAL_MS) {
+                return null;
+            }
+            Map<String, Object> folded = new HashMap<>();
+            folded.put(LIKE_COUNT, loaded.likes);
+            folded.put(COMMENT_COUNT, loaded.comments);
+            folded.put(FOLDED_AT, loaded.loadedAt);
+            transaction.update(postRef, folded);
+            return null;
+        }).addOnFailureListener(e -> Log.w(TAG, "Error folding counters of " + postId + ": " + e.getMessage()));
+    }
+
+    private static int toInt(AggregateQuerySnapshot snapshot, AggregateField.SumAggregateField field) {
+        Long value = snapshot.getLong(field);
+        return value != null ? value.intValue() : 0;
+    }
+}
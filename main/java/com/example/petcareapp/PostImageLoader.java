@@ -0,0 +1,377 @@
+package com.example.petcareapp;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Base64;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The app's only image loader. Loads post images (stored blobs or legacy inline Base64)
+ * and profile pictures (URLs) through the memory and disk caches, decoding misses on a small
+ * background pool. Every load returns a Request that can be cancelled (e.g. when its
+ * view holder is recycled); results of cancelled requests are never delivered.
+ * Requests for an image that is already loading join that load instead of fetching and
+ * decoding it again. Visible rows are decoded before prefetch work, and a visible row
+ * joining a prefetch raises its priority.
+ */
+public class PostImageLoader {
+
+    private static final String TAG = "PostImageLoader";
+    private static final int DECODE_THREADS = 2;
+    private static final int DOWNLOAD_THREADS = 2;
+    private static final int DOWNLOAD_TIMEOUT_MS = 15000;
+    private static final int MAX_DOWNLOAD_BYTES = 10 * 1024 * 1024;
+
+    public static final int PRIORITY_VISIBLE = 0;
+    public static final int PRIORITY_PREFETCH = 1;
+
+    public interface Callback {
+        // Called on the main thread, only if the request was not cancelled. The bitmap is
+        // acquired for the receiver, which must hand it back with release() when done with it.
+        void onLoaded(Bitmap bitmap);
+    }
+
+    public static final class Request {
+        private volatile boolean cancelled = false;
+
+        public void cancel() { cancelled = true; }
+        public boolean isCancelled() { return cancelled; }
+    }
+
+    // Runs on a decode thread after memory and disk cache misses
+    private interface Source {
+        void load(Load load);
+    }
+
+    // One fetch and decode, shared by every request for its key while it runs
+    private static final class Load {
+        final String key;
+        volatile int priority;
+        volatile PrioritizedTask queued; // Last task handed to the decode pool
+        private final List<Request> requests = new ArrayList<>();
+        private final List<Callback> callbacks = new ArrayList<>();
+        private boolean abandoned;
+
+        Load(String key, int priority, Request request, Callback callback) {
+            this.key = key;
+            this.priority = priority;
+            requests.add(request);
+            callbacks.add(callback);
+        }
+
+        // False if every request so far was cancelled; the load stops and takes no more
+        synchronized boolean join(Request request, Callback callback) {
+            if (isCancelled()) return false;
+            requests.add(request);
+            callbacks.add(callback);
+            return true;
+        }
+
+        synchronized boolean isCancelled() {
+            if (!abandoned) {
+                abandoned = true;
+                for (Request request : requests) {
+                    if (!request.isCancelled()) {
+                        abandoned = false;
+                        break;
+                    }
+                }
+            }
+            return abandoned;
+        }
+
+        synchronized List<Callback> liveCallbacks() {
+            List<Callback> live = new ArrayList<>();
+            for (int i = 0; i < requests.size(); i++) {
+                if (!requests.get(i).isCancelled()) {
+                    live.add(callbacks.get(i));
+                }
+            }
+            return live;
+        }
+    }
+
+    private static PostImageLoader instance;
+
+    public static synchronized PostImageLoader getInstance(Context context) {
+        if (instance == null) {
+            instance = new PostImageLoader(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private final ThreadPoolExecutor decodeExecutor = new ThreadPoolExecutor(
+            DECODE_THREADS, DECODE_THREADS, 0L, TimeUnit.MILLISECONDS,
+            new PriorityBlockingQueue<>());
+    private final ExecutorService downloadExecutor = Executors.newFixedThreadPool(DOWNLOAD_THREADS);
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<String, Load> inFlight = new HashMap<>(); // Guarded by itself
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final PostImageStore imageStore = new PostImageStore();
+    private final MutationOutbox outbox;
+    private final BitmapCache cache;
+
+    private PostImageLoader(Context context) {
+        this.cache = new BitmapCache(context);
+        this.outbox = MutationOutbox.getInstance(context);
+        MemoryBudget budget = MemoryBudget.getInstance(context);
+        budget.addListener(level -> cache.resizeMemory(budget.getCacheFraction()));
+    }
+
+    public BitmapCache getCache() {
+        return cache;
+    }
+
+    public void release(Bitmap bitmap) {
+        cache.release(bitmap);
+    }
+
+    /**
+     * Load the image of a post scaled to at most targetWidth pixels wide. A memory cache
+     * hit is delivered before this returns; everything else arrives later on the main thread.
+     */
+    public Request load(Post post, int targetWidth, int priority, Callback callback) {
+        Request request = new Request();
+        String key = BitmapCache.key(imageKey(post, targetWidth), targetWidth);
+        loadThroughCache(request, key, priority, callback,
+                load -> loadFromSource(load, post, targetWidth));
+        return request;
+    }
+
+    /**
+     * Load an image from a URL (profile pictures) scaled to at most targetWidth pixels
+     * wide, with the same caching, pooling and cancellation as post images
+     */
+    public Request loadUrl(String url, int targetWidth, int priority, Callback callback) {
+        Request request = new Request();
+        String key = BitmapCache.key(PostImageStore.contentHash(url.getBytes(StandardCharsets.UTF_8)), targetWidth);
+        loadThroughCache(request, key, priority, callback, load -> downloadExecutor.execute(() -> {
+            // Cancelled while waiting for a download slot
+            if (load.isCancelled()) {
+                drop(load);
+                return;
+            }
+            try {
+                byte[] bytes = download(url);
+                execute(load, () -> decodeAndCache(load, bytes, targetWidth));
+            } catch (IOException e) {
+                Log.e(TAG, "Error downloading " + url + ": " + e.getMessage());
+                drop(load);
+            }
+        }));
+        return request;
+    }
+
+    // Memory, then a load already running for key, then disk (on a decode thread), then
+    // onMiss (also on a decode thread)
+    private void loadThroughCache(Request request, String key, int priority, Callback callback,
+                                  Source onMiss) {
+        Bitmap cached = cache.acquireFromMemory(key);
+        if (cached != null) {
+            callback.onLoaded(cached);
+            return;
+        }
+
+        Load load;
+        synchronized (inFlight) {
+            Load running = inFlight.get(key);
+            if (running != null && running.join(request, callback)) {
+                if (priority < running.priority) {
+                    raisePriority(running, priority);
+                }
+                return;
+            }
+            load = new Load(key, priority, request, callback);
+            inFlight.put(key, load);
+        }
+
+        execute(load, () -> {
+            Bitmap fromDisk = cache.getFromDisk(key);
+            if (fromDisk != null) {
+                cache.acquire(fromDisk);
+                cache.putInMemory(key, fromDisk);
+                deliver(load, fromDisk);
+            } else {
+                onMiss.load(load);
+            }
+        });
+    }
+
+    // A task still waiting for a decode thread is queued again at the new priority; later
+    // stages are queued at it anyway
+    private void raisePriority(Load load, int priority) {
+        load.priority = priority;
+        PrioritizedTask task = load.queued;
+        if (task != null && decodeExecutor.remove(task)) {
+            execute(load, task.work);
+        }
+    }
+
+    // Forget a finished, failed or cancelled load, so the next request for its key starts over
+    private void drop(Load load) {
+        synchronized (inFlight) {
+            if (inFlight.get(load.key) == load) {
+                inFlight.remove(load.key);
+            }
+        }
+    }
+
+    // Runs on a download thread, so slow networks never hold up decoding
+    private static byte[] download(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(DOWNLOAD_TIMEOUT_MS);
+        connection.setReadTimeout(DOWNLOAD_TIMEOUT_MS);
+        try {
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                throw new IOException("HTTP " + connection.getResponseCode());
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            try (InputStream input = connection.getInputStream()) {
+                int read;
+                while ((read = input.read(buffer)) != -1) {
+                    bytes.write(buffer, 0, read);
+                    if (bytes.size() > MAX_DOWNLOAD_BYTES) {
+                        throw new IOException("Image larger than " + MAX_DOWNLOAD_BYTES + " bytes");
+                    }
+                }
+            }
+            return bytes.toByteArray();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    // The content hash of the variant to decode, so posts sharing an image share cache
+    // entries; legacy inline images have no hash and are keyed by their post
+    private static String imageKey(Post post, int targetWidth) {
+        String imageId = PostImageStore.selectImageId(post, targetWidth);
+        return imageId != null && !imageId.isEmpty() ? imageId : post.getPostId();
+    }
+
+    // Runs on a decode thread after a disk cache miss
+    private void loadFromSource(Load load, Post post, int targetWidth) {
+        String imageId = PostImageStore.selectImageId(post, targetWidth);
+        String imageBase64 = post.getImageBase64();
+
+        // A post still waiting in the outbox has its image on disk, not on the server yet
+        byte[] queued = imageId != null && !imageId.isEmpty() ? outbox.readQueuedImage(imageId) : null;
+
+        if (queued != null) {
+            decodeAndCache(load, queued, targetWidth);
+        } else if (imageId != null && !imageId.isEmpty()) {
+            imageStore.fetch(imageId, new PostImageStore.ImageCallback() {
+                @Override
+                public void onImage(byte[] bytes) {
+                    execute(load, () -> decodeAndCache(load, bytes, targetWidth));
+                }
+
+                @Override
+                public void onError(Exception e) {
+                    // Leave the placeholder in place
+                    drop(load);
+                }
+            });
+        } else if (imageBase64 != null && !imageBase64.isEmpty()) {
+            try {
+                byte[] bytes = Base64.decode(imageBase64, Base64.DEFAULT);
+                decodeAndCache(load, bytes, targetWidth);
+            } catch (IllegalArgumentException e) {
+                Log.e(TAG, "Invalid Base64 image: " + e.getMessage());
+                drop(load);
+            }
+        } else {
+            drop(load);
+        }
+    }
+
+    private void decodeAndCache(Load load, byte[] bytes, int targetWidth) {
+        // Decode straight to the target width, reusing pooled memory
+        Bitmap bitmap = BitmapDecoder.decode(bytes, targetWidth, cache.getPool(), cache.getDensityDpi());
+        if (bitmap == null) {
+            Log.e(TAG, "Error decoding image for " + load.key);
+            drop(load);
+            return;
+        }
+
+        cache.acquire(bitmap);
+        cache.putInMemory(load.key, bitmap);
+        cache.putOnDisk(load.key, bitmap);
+        deliver(load, bitmap);
+    }
+
+    // The bitmap has been acquired once for the delivery; every request that is still
+    // live gets a reference of its own
+    private void deliver(Load load, Bitmap bitmap) {
+        // Later requests find it in the memory cache
+        drop(load);
+        mainHandler.post(() -> {
+            for (Callback callback : load.liveCallbacks()) {
+                cache.acquire(bitmap);
+                callback.onLoaded(bitmap);
+            }
+            cache.release(bitmap);
+        });
+    }
+
+    private void execute(Load load, Runnable work) {
+        if (load.isCancelled()) {
+            drop(load);
+            return;
+        }
+        PrioritizedTask task = new PrioritizedTask(load, load.priority, sequence.getAndIncrement(), work);
+        load.queued = task;
+        decodeExecutor.execute(task);
+    }
+
+    private final class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+        private final Load load;
+        private final int priority;
+        private final long order;
+        private final Runnable work;
+
+        PrioritizedTask(Load load, int priority, long order, Runnable work) {
+            this.load = load;
+            this.priority = priority;
+            this.order = order;
+            this.work = work;
+        }
+
+        @Override
+        public void run() {
+            // Cancelled while waiting in the queue
+            if (load.isCancelled()) {
+                drop(load);
+                return;
+            }
+            work.run();
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask other) {
+            if (priority != other.priority) {
+                return Integer.compare(priority, other.priority);
+            }
+            return Long.compare(order, other.order);
+        }
+    }
+}
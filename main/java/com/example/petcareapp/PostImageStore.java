@@ -0,0 +1,210 @@
+package com.example.petcareapp;
+
+import android.graphics.Bitmap;
+import android.util.Base64;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.AggregateQuerySnapshot;
+import com.google.firebase.firestore.AggregateSource;
+import com.google.firebase.firestore.Blob;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.io.ByteArrayOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Post image bytes live in their own collection, keyed by ids derived from the SHA-256 of
+ * the picked source file (see ImageVariants). Post documents only carry that id plus a
+ * tiny inline thumbnail, so feed queries stay small and full images are fetched only for
+ * rows that are shown. An image that is already stored (the same photo posted twice, or
+ * re-picked) is only referenced.
+ */
+public class PostImageStore {
+
+    private static final String TAG = "PostImageStore";
+
+    static final String COLLECTION = "post_images";
+    static final String FIELD_DATA = "data";
+
+    private static final int THUMBNAIL_WIDTH = 48;
+    private static final int THUMBNAIL_QUALITY = 60;
+
+    public interface ImageCallback {
+        void onImage(byte[] bytes);
+        void onError(Exception e);
+    }
+
+    // Image ids known to exist on the server, so repeat uploads skip the lookup too
+    private static final Set<String> knownImageIds = Collections.synchronizedSet(new HashSet<>());
+
+    private final FirebaseFirestore db;
+
+    public PostImageStore() {
+        this.db = FirebaseFirestore.getInstance();
+    }
+
+    public DocumentReference imageRef(String imageId) {
+        return db.collection(COLLECTION).document(imageId);
+    }
+
+    /**
+     * Queue the image document in the same batch as the post that references it
+     */
+    public void addToBatch(WriteBatch batch, String imageId, byte[] bytes) {
+        Map<String, Object> imageData = new HashMap<>();
+        imageData.put(FIELD_DATA, Blob.fromBytes(bytes));
+        imageData.put("size", bytes.length);
+        imageData.put("createdAt", System.currentTimeMillis());
+        batch.set(imageRef(imageId), imageData);
+    }
+
+    /**
+     * Reference every stored variant of an image from the post's data
+     */
+    public static void putVariantFields(ImageVariants variants, Map<String, Object> postData) {
+        postData.put("imageId", variants.fullImageId);
+        if (variants.mediumImageId != null) {
+            postData.put("mediumImageId", variants.mediumImageId);
+        }
+        postData.put("thumbnailBase64", variants.thumbnailBase64);
+        postData.put("placeholderHash", variants.placeholderHash);
+        postData.put("imageWidth", variants.width);
+        postData.put("imageHeight", variants.height);
+        postData.put("hasImage", true);
+    }
+
+    /**
+     * Which of the given images are already stored, so their bytes need not be written
+     * again. Existence is checked with count queries, which never download the image.
+     * Failed checks count as not stored. Rewriting is harmless: an id names one source
+     * photo at one size and quality, so whatever is stored under it, possibly another
+     * device's encoding, shows the same picture.
+     */
+    public Task<Set<String>> findStored(Collection<String> imageIds) {
+        Set<String> stored = new HashSet<>();
+        List<String> toCheck = new ArrayList<>();
+        for (String imageId : imageIds) {
+            if (knownImageIds.contains(imageId)) {
+                stored.add(imageId);
+            } else {
+                toCheck.add(imageId);
+            }
+        }
+        if (toCheck.isEmpty()) {
+            return Tasks.forResult(stored);
+        }
+
+        List<Task<AggregateQuerySnapshot>> lookups = new ArrayList<>();
+        for (String imageId : toCheck) {
+            lookups.add(db.collection(COLLECTION)
+                    .whereEqualTo(FieldPath.documentId(), imageId)
+                    .count()
+                    .get(AggregateSource.SERVER));
+        }
+        return Tasks.whenAllComplete(lookups).continueWith(done -> {
+            for (int i = 0; i < toCheck.size(); i++) {
+                Task<AggregateQuerySnapshot> lookup = lookups.get(i);
+                if (lookup.isSuccessful() && lookup.getResult().getCount() > 0) {
+                    Log.d(TAG, "Image " + toCheck.get(i) + " already stored, referencing it");
+                    knownImageIds.add(toCheck.get(i));
+                    stored.add(toCheck.get(i));
+                }
+            }
+            return stored;
+        });
+    }
+
+    /**
+     * Record images that were committed, so posting them again skips the lookup
+     */
+    public static void markStored(Collection<String> imageIds) {
+        knownImageIds.addAll(imageIds);
+    }
+
+    /**
+     * Smallest stored variant that covers at least 3/4 of targetWidth pixels; the slight
+     * upscale is barely visible in the feed and saves fetching the full image
+     */
+    public static String selectImageId(Post post, int targetWidth) {
+        String mediumImageId = post.getMediumImageId();
+        if (mediumImageId != null && !mediumImageId.isEmpty()
+                && targetWidth > 0 && targetWidth * 3 <= ImageVariants.MEDIUM_WIDTH * 4) {
+            return mediumImageId;
+        }
+        return post.getImageId();
+    }
+
+    public void fetch(String imageId, ImageCallback callback) {
+        imageRef(imageId).get()
+                .addOnSuccessListener(document -> {
+                    Blob data = document.exists() ? document.getBlob(FIELD_DATA) : null;
+                    if (data != null) {
+                        callback.onImage(data.toBytes());
+                    } else {
+                        callback.onError(new IllegalStateException("Missing image " + imageId));
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error fetching image " + imageId + ": " + e.getMessage());
+                    callback.onError(e);
+                });
+    }
+
+    /**
+     * Hex SHA-256 of the given bytes
+     */
+    public static String contentHash(byte[] bytes) {
+        return contentHash(bytes, 0, bytes.length);
+    }
+
+    public static String contentHash(byte[] bytes, int offset, int length) {
+        MessageDigest digest = newDigest();
+        digest.update(bytes, offset, length);
+        return toHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String toHex(byte[] digest) {
+        StringBuilder hex = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Small JPEG preview embedded in the post document
+     */
+    public static String createThumbnailBase64(Bitmap source) {
+        int height = Math.max(1, source.getHeight() * THUMBNAIL_WIDTH / source.getWidth());
+        Bitmap thumbnail = Bitmap.createScaledBitmap(source, THUMBNAIL_WIDTH, height, true);
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        thumbnail.compress(Bitmap.CompressFormat.JPEG, THUMBNAIL_QUALITY, baos);
+        if (thumbnail != source) {
+            thumbnail.recycle();
+        }
+        return Base64.encodeToString(baos.toByteArray(), Base64.NO_WRAP);
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.petcareapp;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local mirror of the posts collection so the feed can be drawn from disk before
+ * (or without) the network. Holds at most MAX_POSTS of the newest posts.
+ */
+public class PostStore {
+
+    private static final String TAG = "PostStore";
+    private static final int MAX_POSTS = 200;
+
+    // All disk access happens on one background thread, so writes never interleave
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    public interface LoadCallback {
+        void onLoaded(List<Post> posts);
+    }
+
+    private final LocalDatabase database;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public PostStore(Context context) {
+        this.database = LocalDatabase.getInstance(context);
+    }
+
+    /**
+     * Load the newest stored posts; the callback runs on the main thread
+     */
+    public void loadRecent(int limit, LoadCallback callback) {
+        executor.execute(() -> {
+            List<Post> posts = new ArrayList<>();
+            try (Cursor cursor = database.getReadableDatabase().query(LocalDatabase.TABLE_POSTS,
+                    new String[]{LocalDatabase.COLUMN_POST_ID, LocalDatabase.COLUMN_DATA},
+                    null, null, null, null,
+                    LocalDatabase.COLUMN_TIMESTAMP + " DESC",
+                    String.valueOf(limit))) {
+                while (cursor.moveToNext()) {
+                    Post post = fromJson(cursor.getString(1));
+                    if (post != null) {
+                        post.setPostId(cursor.getString(0));
+                        posts.add(post);
+                    }
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error reading stored posts: " + e.getMessage());
+            }
+            mainHandler.post(() -> callback.onLoaded(posts));
+        });
+    }
+
+    /**
+     * Insert or replace the given posts, then evict the oldest beyond MAX_POSTS
+     */
+    public void savePosts(List<Post> posts) {
+        if (posts.isEmpty()) return;
+        List<Post> snapshot = new ArrayList<>(posts);
+
+        executor.execute(() -> {
+            SQLiteDatabase db = database.getWritableDatabase();
+            db.beginTransaction();
+            try {
+                for (Post post : snapshot) {
+                    if (post.getPostId() == null) continue;
+                    ContentValues values = new ContentValues();
+                    values.put(LocalDatabase.COLUMN_POST_ID, post.getPostId());
+                    values.put(LocalDatabase.COLUMN_TIMESTAMP, post.getTimestamp());
+                    values.put(LocalDatabase.COLUMN_DATA, toJson(post));
+                    db.insertWithOnConflict(LocalDatabase.TABLE_POSTS, null, values,
+                            SQLiteDatabase.CONFLICT_REPLACE);
+                }
+                evictOldest(db);
+                db.setTransactionSuccessful();
+            } catch (Exception e) {
+                Log.e(TAG, "Error saving posts: " + e.getMessage());
+            } finally {
+                db.endTransaction();
+            }
+        });
+    }
+
+    public void deletePost(String postId) {
+        executor.execute(() -> database.getWritableDatabase().delete(LocalDatabase.TABLE_POSTS,
+                LocalDatabase.COLUMN_POST_ID + " = ?", new String[]{postId}));
+    }
+
+    private void evictOldest(SQLiteDatabase db) {
+        db.execSQL("DELETE FROM " + LocalDatabase.TABLE_POSTS
+                + " WHERE " + LocalDatabase.COLUMN_POST_ID + " NOT IN (SELECT "
+                + LocalDatabase.COLUMN_POST_ID + " FROM " + LocalDatabase.TABLE_POSTS
+                + " ORDER BY " + LocalDatabase.COLUMN_TIMESTAMP + " DESC LIMIT " + MAX_POSTS + ")");
+    }
+
+    private static String toJson(Post post) throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put("userId", post.getUserId());
+        json.put("username", post.getUsername());
+        json.put("caption", post.getCaption());
+        // Legacy inline images can be megabytes, more than a CursorWindow holds
+        json.put("legacyImageOmitted", post.isLegacyImageOmitted()
+                || (post.getImageBase64() != null && !post.getImageBase64().isEmpty()));
+        json.put("imageId", post.getImageId());
+        json.put("mediumImageId", post.getMediumImageId());
+        json.put("imageWidth", post.getImageWidth());
+        json.put("imageHeight", post.getImageHeight());
+        json.put("thumbnailBase64", post.getThumbnailBase64());
+        json.put("placeholderHash", post.getPlaceholderHash());
+        json.put("userProfileImage", post.getUserProfileImage());
+        json.put("timestamp", post.getTimestamp());
+        json.put("likeCount", post.getLikeCount());
+        json.put("commentCount", post.getCommentCount());
+        json.put("countersFoldedAt", post.getCountersFoldedAt());
+        return json.toString();
+    }
+
+    static Post fromJson(String data) {
+        try {
+            JSONObject json = new JSONObject(data);
+            Post post = new Post();
+            post.setUserId(json.optString("userId", null));
+            post.setUsername(json.optString("username", null));
+            post.setCaption(json.optString("caption", null));
+            post.setLegacyImageOmitted(json.optBoolean("legacyImageOmitted"));
+            post.setImageId(json.optString("imageId", null));
+            post.setMediumImageId(json.optString("mediumImageId", null));
+            post.setImageWidth(json.optInt("imageWidth"));
+            post.setImageHeight(json.optInt("imageHeight"));
+            post.setThumbnailBase64(json.optString("thumbnailBase64", null));
+            post.setPlaceholderHash(json.optString("placeholderHash", null));
+            post.setUserProfileImage(json.optString("userProfileImage", null));
+            post.setTimestamp(json.has("timestamp") ? json.getLong("timestamp") : null);
+            post.setLikeCount(json.optInt("likeCount"));
+            post.setCommentCount(json.optInt("commentCount"));
+            post.setCountersFoldedAt(json.has("countersFoldedAt") ? json.getLong("countersFoldedAt") : null);
+            return post;
+        } catch (JSONException e) {
+            Log.e(TAG, "Error parsing stored post: " + e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.petcareapp;
+
+import android.Manifest;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.NotificationManagerCompat;
+import androidx.core.content.ContextCompat;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Sends the posts queued in the MutationOutbox from a WorkManager job, so an upload started
+ * on the create screen finishes even if the app is closed or killed. The job waits for a
+ * network, is retried with backoff while something is left, and shows its progress in a
+ * notification.
+ */
+public class PostUploadWorker extends Worker {
+
+    private static final String WORK_NAME = "post_upload";
+    private static final String CHANNEL_ID = "post_upload";
+    private static final int NOTIFICATION_ID = 1001;
+    private static final long BACKOFF_SECONDS = 10;
+    private static final long PENDING_WRITES_TIMEOUT_S = 120;
+
+    /**
+     * Make sure a job runs for the queued posts; one already running is followed by a new one
+     */
+    public static void schedule(Context context) {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(PostUploadWorker.class)
+                .setConstraints(new Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.CONNECTED)
+                        .build())
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.APPEND_OR_REPLACE, request);
+    }
+
+    public PostUploadWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        MutationOutbox outbox = MutationOutbox.getInstance(getApplicationContext());
+        int total = outbox.countPendingPosts();
+        if (total == 0) return Result.success();
+
+        int[] sent = {0};
+        showProgress(0, total);
+        try {
+            boolean drained = outbox.drain(count -> {
+                sent[0] += count;
+                showProgress(sent[0], total);
+            });
+            if (!drained) {
+                return Result.retry();
+            }
+            // A committed batch is only in Firestore's local queue; the job is done once the
+            // server has it, or the process could die before Firestore sends it
+            Tasks.await(FirebaseFirestore.getInstance().waitForPendingWrites(),
+                    PENDING_WRITES_TIMEOUT_S, TimeUnit.SECONDS);
+            return Result.success();
+        } catch (ExecutionException | TimeoutException e) {
+            return Result.retry();
+        } catch (InterruptedException e) {
+            // Stopped by WorkManager, the rows are still queued
+            return Result.retry();
+        } finally {
+            NotificationManagerCompat.from(getApplicationContext()).cancel(NOTIFICATION_ID);
+        }
+    }
+
+    private void showProgress(int sent, int total) {
+        Context context = getApplicationContext();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                && ContextCompat.checkSelfPermission(context, Manifest.permission.POST_NOTIFICATIONS)
+                != PackageManager.PERMISSION_GRANTED) {
+            return;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationChannel channel = new NotificationChannel(CHANNEL_ID, "Post uploads",
+                    NotificationManager.IMPORTANCE_LOW);
+            context.getSystemService(NotificationManager.class).createNotificationChannel(channel);
+        }
+
+        String text = total == 1 ? "Sharing your post..." : "Sharing posts (" + sent + " of " + total + ")";
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(android.R.drawable.stat_sys_upload)
+                .setContentTitle(context.getString(R.string.app_name))
+                .setContentText(text)
+                .setOnlyAlertOnce(true)
+                .setOngoing(true)
+                .setProgress(total, sent, total == 1);
+        NotificationManagerCompat.from(context).notify(NOTIFICATION_ID, builder.build());
+    }
+}
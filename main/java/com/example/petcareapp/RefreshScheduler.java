@@ -0,0 +1,76 @@
+package com.example.petcareapp;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+/**
+ * Merges refresh triggers from different sources into as few refreshes as possible.
+ * A request while a refresh is running queues exactly one follow-up, and refreshes
+ * never start closer together than the minimum interval. Main thread only.
+ */
+public class RefreshScheduler {
+
+    public interface RefreshTask {
+        // Must call onComplete exactly once, on the main thread
+        void run(Runnable onComplete);
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final RefreshTask task;
+    private final long minIntervalMs;
+    private final Runnable runScheduled = this::runNow;
+
+    private boolean running = false;
+    private boolean pending = false;
+    private boolean scheduled = false;
+    private long lastStartedAt = 0;
+
+    public RefreshScheduler(long minIntervalMs, RefreshTask task) {
+        this.minIntervalMs = minIntervalMs;
+        this.task = task;
+    }
+
+    public void requestRefresh() {
+        if (running) {
+            pending = true;
+            return;
+        }
+        if (scheduled) return;
+
+        long wait = lastStartedAt == 0 ? 0
+                : lastStartedAt + minIntervalMs - SystemClock.elapsedRealtime();
+        if (wait > 0) {
+            scheduled = true;
+            handler.postDelayed(runScheduled, wait);
+        } else {
+            runNow();
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Drop scheduled and queued refreshes; a refresh already running still completes
+     */
+    public void cancel() {
+        handler.removeCallbacks(runScheduled);
+        scheduled = false;
+        pending = false;
+    }
+
+    private void runNow() {
+        scheduled = false;
+        running = true;
+        lastStartedAt = SystemClock.elapsedRealtime();
+        task.run(() -> {
+            running = false;
+            if (pending) {
+                pending = false;
+                requestRefresh();
+            }
+        });
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.petcareapp;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves user ids to their profiles for the feed. Results are cached in memory for
+ * TTL_MS; concurrent lookups of the same user share one fetch, and misses collected
+ * within a frame are fetched together with whereIn queries. Main thread only.
+ */
+public class UserProfileResolver {
+
+    private static final String TAG = "UserProfileResolver";
+    private static final long TTL_MS = 10 * 60 * 1000;
+    private static final int MAX_CACHED_USERS = 500;
+    // Firestore's limit for whereIn on document ids
+    private static final int MAX_BATCH_SIZE = 30;
+    // Rows bound in the same layout pass end up in the same batch
+    private static final long BATCH_WINDOW_MS = 16;
+
+    public interface Callback {
+        // Null if the user does not exist or could not be loaded
+        void onResolved(@Nullable User user);
+    }
+
+    private static final class Entry {
+        final User user;
+        final long fetchedAt;
+
+        Entry(User user, long fetchedAt) {
+            this.user = user;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+
+    private static UserProfileResolver instance;
+
+    public static synchronized UserProfileResolver getInstance() {
+        if (instance == null) {
+            instance = new UserProfileResolver();
+        }
+        return instance;
+    }
+
+    private final FirebaseFirestore db = FirebaseFirestore.getInstance();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, Entry> cache = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_CACHED_USERS;
+        }
+    };
+    // Users queued or being fetched, with everyone waiting for them
+    private final Map<String, List<Callback>> waiting = new HashMap<>();
+    private final Set<String> queued = new LinkedHashSet<>();
+    private boolean flushScheduled = false;
+
+    private UserProfileResolver() {
+    }
+
+    /**
+     * Deliver the profile of userId, synchronously if it is cached
+     */
+    public void resolve(String userId, Callback callback) {
+        Entry entry = cache.get(userId);
+        if (entry != null && SystemClock.elapsedRealtime() - entry.fetchedAt < TTL_MS) {
+            callback.onResolved(entry.user);
+            return;
+        }
+
+        List<Callback> callbacks = waiting.get(userId);
+        if (callbacks != null) {
+            // Already on its way
+            callbacks.add(callback);
+            return;
+        }
+        callbacks = new ArrayList<>();
+        callbacks.add(callback);
+        waiting.put(userId, callbacks);
+        queued.add(userId);
+
+        if (!flushScheduled) {
+            flushScheduled = true;
+            mainHandler.postDelayed(this::flush, BATCH_WINDOW_MS);
+        }
+    }
+
+    /**
+     * Forget a cached profile, e.g. after the user changed it
+     */
+    public void invalidate(String userId) {
+        cache.remove(userId);
+    }
+
+    private void flush() {
+        flushScheduled = false;
+        List<String> userIds = new ArrayList<>(queued);
+        queued.clear();
+        for (int start = 0; start < userIds.size(); start += MAX_BATCH_SIZE) {
+            fetch(new ArrayList<>(userIds.subList(start, Math.min(userIds.size(), start + MAX_BATCH_SIZE))));
+        }
+    }
+
+    private void fetch(List<String> userIds) {
+        db.collection("users")
+                .whereIn(FieldPath.documentId(), userIds)
+                .get()
+                .addOnSuccessListener(snapshot -> {
+                    long now = SystemClock.elapsedRealtime();
+                    Map<String, User> found = new HashMap<>();
+                    for (DocumentSnapshot document : snapshot.getDocuments()) {
+                        try {
+                            User user = document.toObject(User.class);
+                            if (user != null) {
+                                user.setUserId(document.getId());
+                                found.put(document.getId(), user);
+                            }
+                        } catch (RuntimeException e) {
+                            // A malformed profile resolves to null instead of leaving its waiters hanging
+                            Log.e(TAG, "Error converting user " + document.getId() + ": " + e.getMessage());
+                        }
+                    }
+                    boolean fromServer = !snapshot.getMetadata().isFromCache();
+                    for (String userId : userIds) {
+                        User user = found.get(userId);
+                        if (user != null || fromServer) {
+                            // Missing users are cached too, so they are not asked for again
+                            cache.put(userId, new Entry(user, now));
+                            complete(userId, user);
+                        } else {
+                            // Offline answer: the profile may just not be cached locally yet,
+                            // so the next bind asks again
+                            Entry stale = cache.get(userId);
+                            complete(userId, stale != null ? stale.user : null);
+                        }
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error resolving " + userIds.size() + " users: " + e.getMessage());
+                    for (String userId : userIds) {
+                        // Not cached, the next bind tries again; a stale profile beats none
+                        Entry stale = cache.get(userId);
+                        complete(userId, stale != null ? stale.user : null);
+                    }
+                });
+    }
+
+    private void complete(String userId, User user) {
+        List<Callback> callbacks = waiting.remove(userId);
+        if (callbacks == null) return;
+        for (Callback callback : callbacks) {
+            callback.onResolved(user);
+        }
+    }
+}